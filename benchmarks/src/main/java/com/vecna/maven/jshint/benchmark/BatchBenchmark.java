@@ -0,0 +1,111 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vecna.maven.jshint.engine.LintEngine;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Linting a batch of small sources one by one vs. in a single call into the engine.
+ * @author ogolberg@vecna.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+  private static final int FILES = 32;
+
+  /**
+   * Size of the linted sources.
+   */
+  @Param({"TINY", "SMALL"})
+  public Corpus.Size size;
+
+  private LintEngine m_engine;
+  private JsHintOptions m_options;
+  private String[] m_srcFiles;
+  private String[] m_sources;
+
+  /**
+   * Bootstrap JSHint and generate the sources
+   * @throws IOException if JSHint or the jshintrc cannot be read
+   */
+  @Setup
+  public void setUp() throws IOException {
+    JsScript jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, true);
+    m_engine = LintEngines.get(LintEngines.RHINO).bootstrap(jsHint);
+    m_options = new JsHintOptions(Corpus.jshintrc(), null);
+    m_srcFiles = new String[FILES];
+    m_sources = new String[FILES];
+    for (int i = 0; i < FILES; i++) {
+      m_srcFiles[i] = "source" + i + ".js";
+      m_sources[i] = Corpus.source(size);
+    }
+  }
+
+  /**
+   * @return the errors
+   */
+  @Benchmark
+  public List<List<JsHintError>> oneByOne() {
+    List<List<JsHintError>> errors = new ArrayList<List<JsHintError>>(FILES);
+    for (int i = 0; i < FILES; i++) {
+      errors.add(m_engine.lint(m_srcFiles[i], m_sources[i], m_options));
+    }
+    return errors;
+  }
+
+  /**
+   * @return the errors
+   */
+  @Benchmark
+  public List<List<JsHintError>> batched() {
+    return m_engine.lint(m_srcFiles, m_sources, m_options);
+  }
+
+  /**
+   * Close the engine
+   */
+  @TearDown
+  public void tearDown() {
+    m_engine.close();
+  }
+}
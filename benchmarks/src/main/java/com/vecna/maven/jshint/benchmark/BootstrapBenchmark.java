@@ -0,0 +1,74 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vecna.maven.jshint.rhino.JsEngine;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Creating an engine and evaluating JSHint in it, i.e. the cost of bootstrapping a worker thread.
+ * @author ogolberg@vecna.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BootstrapBenchmark {
+  /**
+   * Whether to run the precompiled JSHint (falls back to the interpreter if it's not available).
+   */
+  @Param({"true", "false"})
+  public boolean precompiled;
+
+  private JsScript m_jsHint;
+
+  /**
+   * Load (and compile) the bundled JSHint
+   * @throws IOException if JSHint cannot be read
+   */
+  @Setup
+  public void setUp() throws IOException {
+    m_jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, precompiled);
+  }
+
+  /**
+   * @return an engine with JSHint loaded (closed, so that the engines don't pile up on the benchmark thread)
+   */
+  @Benchmark
+  public JsEngine bootstrap() {
+    JsEngine engine = new JsEngine().browserEnv().eval(m_jsHint);
+    engine.close();
+    return engine;
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+import com.vecna.maven.jshint.mojo.JsHintError;
+
+/**
+ * Generates the benchmark inputs. Everything is derived from a fixed seed, so the same sources and errors are
+ * generated on every machine and no external corpus has to be downloaded.
+ * <p>
+ * Running the class writes the generated sources into a directory (the first argument, <code>corpus</code> by
+ * default) so that they can be linted with the plugin itself.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public final class Corpus {
+  /**
+   * Sizes of the generated sources.
+   */
+  public enum Size {
+    /**
+     * A small module, about 50 lines.
+     */
+    SMALL(5, false),
+    /**
+     * A typical application file, about 2,000 lines.
+     */
+    MEDIUM(180, false),
+    /**
+     * A minified library on a single line, about 1MB.
+     */
+    MINIFIED_LARGE(5000, true),
+    /**
+     * A tiny module, e.g. a message bundle or a template helper, about 15 lines.
+     */
+    TINY(1, false);
+
+    private final int m_functions;
+    private final boolean m_minified;
+
+    private Size(int functions, boolean minified) {
+      m_functions = functions;
+      m_minified = minified;
+    }
+  }
+
+  private static final long SEED = 20130401L;
+
+  private static final String[] WORDS = {"item", "value", "node", "count", "index", "result", "options", "handler",
+                                         "element", "request", "response", "data", "model", "view", "cache", "key"};
+
+  private Corpus() {
+  }
+
+  /**
+   * @return the contents of a realistic jshintrc
+   * @throws IOException if the bundled jshintrc cannot be read
+   */
+  public static String jshintrc() throws IOException {
+    InputStream in = Corpus.class.getResourceAsStream("jshintrc");
+    try {
+      return IOUtils.toString(in, Charsets.UTF_8);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Generate a JS source. Readable sources contain a few violations every now and then, like real code does.
+   * @param size size of the source
+   * @return the source
+   */
+  public static String source(Size size) {
+    Random random = new Random(SEED + size.ordinal());
+    StringBuilder source = new StringBuilder();
+    String nl = size.m_minified ? "" : "\n";
+    String indent = size.m_minified ? "" : "  ";
+
+    source.append("/*global define */").append("\n");
+    source.append("define(['jquery', 'underscore'], function ($, _) {").append(nl);
+    for (int f = 0; f < size.m_functions; f++) {
+      String name = size.m_minified ? "f" + f : word(random) + "Of" + capitalize(word(random)) + f;
+      String arg = size.m_minified ? "a" : word(random);
+      String local = size.m_minified ? "b" : word(random) + "s";
+
+      source.append(indent).append("function ").append(name).append("(").append(arg).append(") {").append(nl);
+      source.append(indent).append(indent).append("var ").append(local).append(" = [], i;").append(nl);
+      source.append(indent).append(indent).append("for (i = 0; i < ").append(arg).append(".length; i++) {").append(nl);
+      if (!size.m_minified && random.nextInt(10) == 0) {
+        // a violation: == instead of ===, missing braces and a missing semicolon
+        source.append(indent).append(indent).append(indent).append("if (").append(arg)
+              .append("[i] == '') continue").append(nl);
+      }
+      source.append(indent).append(indent).append(indent).append(local).append(".push({ key: '")
+            .append(word(random)).append("', value: ").append(arg).append("[i] * ").append(random.nextInt(100))
+            .append(" });").append(nl);
+      source.append(indent).append(indent).append("}").append(nl);
+      source.append(indent).append(indent).append("return _.map(").append(local).append(", function (e) {")
+            .append(nl);
+      source.append(indent).append(indent).append(indent).append("return $('<li>').text(e.key + ': ' + e.value);")
+            .append(nl);
+      source.append(indent).append(indent).append("});").append(nl);
+      source.append(indent).append("}").append(nl);
+      source.append(indent).append("window.").append(name).append(" = ").append(name).append(";").append(nl);
+      if (!size.m_minified) {
+        source.append(nl);
+      }
+    }
+    source.append("});").append("\n");
+    return source.toString();
+  }
+
+  /**
+   * Generate lint errors spread over files of a hundred errors each.
+   * @param count number of errors
+   * @return the errors
+   */
+  public static List<JsHintError> errors(int count) {
+    Random random = new Random(SEED);
+    List<JsHintError> errors = new ArrayList<JsHintError>(count);
+    for (int i = 0; i < count; i++) {
+      errors.add(new JsHintError("src/main/javascript/" + word(random) + "/file" + (i / 100) + ".js",
+                                 random.nextInt(2000) + 1, random.nextInt(120) + 1,
+                                 "if (" + word(random) + " == '') " + word(random) + "++",
+                                 "Use '===' to compare with ''."));
+    }
+    return errors;
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+
+  private static String capitalize(String word) {
+    return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+  }
+
+  /**
+   * Write the generated sources into a directory
+   * @param args target directory
+   * @throws IOException if the sources cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    File dir = new File(args.length > 0 ? args[0] : "corpus");
+    for (Size size : Size.values()) {
+      File file = new File(dir, size.name().toLowerCase() + ".js");
+      FileUtils.writeStringToFile(file, source(size), Charsets.UTF_8);
+      System.out.println(file + ": " + file.length() + " bytes");
+    }
+    FileUtils.writeStringToFile(new File(dir, "jshintrc"), jshintrc(), Charsets.UTF_8);
+  }
+}
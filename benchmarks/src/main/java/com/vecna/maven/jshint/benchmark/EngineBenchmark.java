@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vecna.maven.jshint.engine.LintEngine;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Linting a source and converting its errors on each JS engine backend, side by side. The <code>jsr223</code>
+ * backend needs a JavaScript engine on the JVM (e.g. Nashorn); without one its setup fails.
+ * @author ogolberg@vecna.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+  /**
+   * JS engine backend.
+   */
+  @Param({LintEngines.RHINO, LintEngines.JSR223})
+  public String engine;
+
+  /**
+   * Size of the linted source.
+   */
+  @Param({"SMALL", "MEDIUM"})
+  public Corpus.Size size;
+
+  private LintEngine m_engine;
+  private JsHintOptions m_options;
+  private String m_source;
+
+  /**
+   * Bootstrap JSHint and generate the source
+   * @throws IOException if JSHint or the jshintrc cannot be read
+   */
+  @Setup
+  public void setUp() throws IOException {
+    LintEngineFactory factory = LintEngines.get(engine);
+    if (factory == null) {
+      throw new IllegalStateException("the " + engine + " engine is not available on this JVM");
+    }
+    JsScript jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, true);
+    m_engine = factory.bootstrap(jsHint);
+    m_options = new JsHintOptions(Corpus.jshintrc(), null);
+    m_source = Corpus.source(size);
+  }
+
+  /**
+   * @return the errors
+   */
+  @Benchmark
+  public List<JsHintError> lint() {
+    return m_engine.lint("source.js", m_source, m_options);
+  }
+
+  /**
+   * Close the engine
+   */
+  @TearDown
+  public void tearDown() {
+    m_engine.close();
+  }
+}
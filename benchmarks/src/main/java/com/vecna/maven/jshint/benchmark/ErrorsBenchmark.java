@@ -0,0 +1,74 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintLinter;
+import com.vecna.maven.jshint.rhino.JsEngine;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Converting the errors JSHint found in the medium source from the native array into {@link JsHintError}s.
+ * @author ogolberg@vecna.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorsBenchmark {
+  private NativeArray m_errors;
+
+  /**
+   * Lint the medium source once
+   * @throws IOException if JSHint or the jshintrc cannot be read
+   */
+  @Setup
+  public void setUp() throws IOException {
+    JsScript jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, false);
+    JsEngine engine = new JsEngine().browserEnv().eval(jsHint);
+    Function jsHintFunction = (Function) engine.get("JSHINT");
+    engine.call(jsHintFunction, Corpus.source(Corpus.Size.MEDIUM), engine.parseJSON(Corpus.jshintrc()), null);
+    m_errors = (NativeArray) engine.get(jsHintFunction, "errors");
+  }
+
+  /**
+   * @return the converted errors
+   */
+  @Benchmark
+  public List<JsHintError> toErrors() {
+    return JsHintLinter.toErrors("medium.js", m_errors);
+  }
+}
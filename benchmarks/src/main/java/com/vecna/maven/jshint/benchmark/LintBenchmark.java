@@ -0,0 +1,96 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vecna.maven.jshint.rhino.JsEngine;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * A single <code>JSHINT(source, options)</code> call, without converting the errors.
+ * @author ogolberg@vecna.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LintBenchmark {
+  /**
+   * Size of the linted source.
+   */
+  @Param({"SMALL", "MEDIUM", "MINIFIED_LARGE"})
+  public Corpus.Size size;
+
+  /**
+   * Whether to run the precompiled JSHint (falls back to the interpreter if it's not available).
+   */
+  @Param({"true", "false"})
+  public boolean precompiled;
+
+  private JsEngine m_engine;
+  private Function m_jsHint;
+  private NativeObject m_options;
+  private String m_source;
+
+  /**
+   * Bootstrap JSHint and generate the source
+   * @throws IOException if JSHint or the jshintrc cannot be read
+   */
+  @Setup
+  public void setUp() throws IOException {
+    JsScript jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, precompiled);
+    m_engine = new JsEngine().browserEnv().eval(jsHint);
+    m_jsHint = (Function) m_engine.get("JSHINT");
+    m_options = m_engine.parseJSON(Corpus.jshintrc());
+    m_source = Corpus.source(size);
+  }
+
+  /**
+   * @return whether the source passed
+   */
+  @Benchmark
+  public Object lint() {
+    return m_engine.call(m_jsHint, m_source, m_options, null);
+  }
+
+  /**
+   * Close the engine
+   */
+  @TearDown
+  public void tearDown() {
+    m_engine.close();
+  }
+}
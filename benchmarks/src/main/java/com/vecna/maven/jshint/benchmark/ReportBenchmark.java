@@ -0,0 +1,78 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.report.JsHintCheckstyleReporter;
+
+/**
+ * Writing the Checkstyle report. The report is discarded, so only the XML serialization is measured.
+ * @author ogolberg@vecna.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+  /**
+   * Number of errors in the report.
+   */
+  @Param({"10000", "100000"})
+  public int errorCount;
+
+  private Multimap<String, JsHintError> m_errors;
+
+  /**
+   * Generate the errors
+   */
+  @Setup
+  public void setUp() {
+    m_errors = ArrayListMultimap.create();
+    for (JsHintError error : Corpus.errors(errorCount)) {
+      m_errors.put(error.getSource(), error);
+    }
+  }
+
+  /**
+   * Write the report
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  @Benchmark
+  public void report() throws MojoExecutionException {
+    new JsHintCheckstyleReporter().report(m_errors, new NullOutputStream());
+  }
+}
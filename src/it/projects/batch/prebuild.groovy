@@ -0,0 +1,19 @@
+// tiny modules in directories with different options, a few of them with violations, and one large module
+def js = new File(basedir, 'target/js')
+js.deleteDir()
+
+def module = { File file, int n ->
+  file.parentFile.mkdirs()
+  def body = n % 7 == 0 ? "  if (x == '') return x\n" : ''
+  file.text = "define([], function () {\n  var x = 'm${n}';\n${body}  return { key: x };\n});\n"
+}
+
+(0..<150).each { module(new File(js, "a/m${it}.js"), it) }
+(0..<50).each { module(new File(js, "b/m${it}.js"), it) }
+new File(js, 'b/.jshintrc').text = '{ "asi": true }'
+(0..<100).each { module(new File(js, "c/m${it}.js"), it) }
+
+def large = new StringBuilder()
+(0..<1000).each { large << "var v${it} = ${it} == 0 ? 'a' : 'b'\n" }
+new File(js, 'c/large.js').text = large.toString()
+return true
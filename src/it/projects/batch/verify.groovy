@@ -0,0 +1,5 @@
+def report = { name -> new File(basedir, 'target/' + name).text }
+
+assert report('one-by-one.xml').contains('<error ')
+assert report('one-by-one.xml') == report('batched.xml')
+return true
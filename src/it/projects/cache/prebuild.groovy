@@ -0,0 +1,3 @@
+// start from an empty cache when the cloned project is reused
+new File(basedir, 'target/it.cache').delete()
+return true
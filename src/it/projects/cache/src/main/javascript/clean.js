@@ -0,0 +1,3 @@
+var clean = {
+  name: 'clean'
+};
@@ -0,0 +1,3 @@
+var messy = 'a string that is long enough to be cut off in the log'
+var other = 'another string that is long enough to be cut off'
+function f() { return messy == other }
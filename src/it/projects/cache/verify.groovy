@@ -0,0 +1,15 @@
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.contains('0 of 2 files unchanged since the last run')
+def lines = buildLog.readLines()
+// warm and after each partial run, in-process and forked
+assert lines.findAll { it.contains('2 of 2 files unchanged since the last run') }.size() == 3
+assert lines.findAll { it.contains('1 of 1 files unchanged since the last run') }.size() == 2
+assert buildLog.contains("(var messy = 'a strin...)")
+assert !buildLog.contains('long enough to be cut off')
+
+def report = { name -> new File(basedir, 'target/' + name).text }
+assert report('cold.xml').contains('Missing semicolon.')
+assert report('cold.xml') == report('warm.xml')
+assert report('cold.xml') == report('after-partial.xml')
+assert report('cold.xml') == report('after-forked-partial.xml')
+return true
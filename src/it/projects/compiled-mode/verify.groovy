@@ -0,0 +1,20 @@
+def errors(name) {
+  def report = new File(basedir, 'target/' + name)
+  assert report.exists()
+  def reportDoc = new XmlParser().parse(report)
+  reportDoc.file.collectMany { file ->
+    file.error.collect { error -> [file.@name, error.@line, error.@column, error.@message] }
+  }.sort { it.join(':') }
+}
+
+def precompiled = errors('jshint-precompiled.xml')
+def interpreted = errors('jshint-interpreted.xml')
+
+assert !interpreted.isEmpty()
+assert precompiled == interpreted
+
+// the precompiled classes must actually have been used, or the reports above would only compare the interpreter
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.contains('JSHint ran from precompiled classes')
+assert buildLog.contains('JSHint ran in the interpreter')
+return true
@@ -0,0 +1,2 @@
+legacyGlobal.run();
+undeclared.run();
@@ -0,0 +1 @@
+var sub = 'sub'
@@ -0,0 +1,13 @@
+def report = new XmlParser().parse(new File(basedir, 'target/jshint.xml'))
+def messages = { name ->
+  report.file.find { it.'@name'.replace('\\', '/') == name }?.error?.collect { it.'@message' } ?: []
+}
+
+// no .jshintrc: default options
+assert messages('app.js') == ['Missing semicolon.']
+// lib/.jshintrc allows the missing semicolon, the plugin configuration still enforces single quotes
+assert messages('lib/lib.js') == ['Strings must use singlequote.']
+assert messages('lib/sub/sub.js') == []
+// legacy/.jshintrc turns on undef and declares one global
+assert messages('legacy/legacy.js') == ["'undeclared' is not defined."]
+return true
@@ -0,0 +1,9 @@
+// enough small modules, a few of them with violations, for the engines to be recycled several times
+def js = new File(basedir, 'target/js')
+js.deleteDir()
+js.mkdirs()
+(0..<400).each {
+  def body = it % 9 == 0 ? "  if (x == '') return x\n" : ''
+  new File(js, "m${it}.js").text = "define([], function () {\n  var x = 'm${it}';\n${body}  return { key: x };\n});\n"
+}
+return true
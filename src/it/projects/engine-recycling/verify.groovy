@@ -0,0 +1,11 @@
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.contains('recycling the JSHint engine of jshint-0: linted ')
+// the forks log to the standard error of the build
+assert buildLog.contains('[info] recycling the JSHint engine of jshint-0: linted ')
+
+def report = { name -> new File(basedir, 'target/' + name).text }
+
+assert report('kept.xml').contains('<error ')
+assert report('kept.xml') == report('recycled.xml')
+assert report('kept.xml') == report('forked.xml')
+return true
@@ -0,0 +1,4 @@
+// generate a file that takes JSHint far longer than the fileTimeout to lint
+def functions = (0..<20000).collect { "function f${it}(a) {\n  return a + ${it};\n}\n" }.join()
+new File(basedir, 'src/main/javascript/a-large.js').text = functions
+return true
@@ -0,0 +1,17 @@
+def buildLog = new File(basedir, 'build.log').text
+if (buildLog.contains('no JavaScript engine is available through javax.script, using Rhino')) {
+  // Nashorn ships with Java 8 to 14, where the jsr223 engine must not fall back
+  def version = System.getProperty('java.specification.version')
+  def major = (version.startsWith('1.') ? version.substring(2) : version).toInteger()
+  assert major > 14 : "no javax.script engine on Java ${version}"
+  println "no javax.script engine on Java ${version}, the jsr223 engine fell back to Rhino"
+}
+
+assert buildLog.contains('a-large.js: lint timed out, JSHint gave up after 500 milliseconds')
+assert buildLog.contains('JSHint timed out on 1 of 2 files')
+
+def report = new File(basedir, 'target/jshint.xml').text
+assert report.contains('source="jshint.timeout"')
+// the small file is linted after the timeout, by a fresh engine
+assert report.contains("Use '===' to compare with 'null'.")
+return true
@@ -0,0 +1,22 @@
+def buildLog = new File(basedir, 'build.log').text
+def report = { name -> new File(basedir, 'target/' + name).text }
+
+assert report('rhino.xml').contains('<error ')
+assert buildLog.contains('running JSHint on Rhino')
+
+if (buildLog.contains('no JavaScript engine is available through javax.script, using Rhino')) {
+  // Nashorn ships with Java 8 to 14, where the comparison must run; later JDKs have no JavaScript engine, and both
+  // executions ran on Rhino. Jsr223LintEngineTest runs the jsr223 engine on any JVM.
+  def version = System.getProperty('java.specification.version')
+  def major = (version.startsWith('1.') ? version.substring(2) : version).toInteger()
+  assert major > 14 : "no javax.script engine on Java ${version}"
+  println "no javax.script engine on Java ${version}, skipping the jsr223 comparison"
+  return true
+}
+
+// one execution ran on Rhino and the other on the engine of the JVM
+def backends = buildLog.readLines().findAll { it.contains('running JSHint on ') }
+assert backends.size() == 2
+assert backends.findAll { it.contains('running JSHint on Rhino') }.size() == 1
+assert report('rhino.xml') == report('jsr223.xml')
+return true
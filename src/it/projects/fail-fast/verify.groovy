@@ -0,0 +1,10 @@
+def buildLog = new File(basedir, 'build.log')
+assert buildLog.exists()
+assert buildLog.text.contains('Stopped linting early, 2 files were not linted')
+
+def report = new File(basedir, 'target/jshint.xml')
+assert report.exists()
+assert report.text.contains('truncated')
+
+def reportDoc = new XmlParser().parse(report)
+assert 1 == reportDoc.file.size()
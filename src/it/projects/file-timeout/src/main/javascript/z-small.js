@@ -0,0 +1,3 @@
+function small(a) {
+  return a == null;
+}
@@ -0,0 +1,9 @@
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.contains('a-large.js: lint timed out, JSHint gave up after 500 milliseconds')
+assert buildLog.contains('JSHint timed out on 1 of 2 files')
+
+def report = new File(basedir, 'target/jshint.xml').text
+assert report.contains('source="jshint.timeout"')
+// the small file is linted after the timeout, by a fresh engine
+assert report.contains("Use '===' to compare with 'null'.")
+return true
@@ -0,0 +1,24 @@
+// modules of different sizes in directories with different options, a few of them with violations, and a
+// "minified" file; starts from an empty cache when the cloned project is reused
+def js = new File(basedir, 'target/js')
+js.deleteDir()
+new File(basedir, 'target/forks.cache').delete()
+
+def module = { File file, int n ->
+  file.parentFile.mkdirs()
+  def body = new StringBuilder()
+  (0..<(n % 13) * 10).each { body << "  var v${it} = x + ${it};\n" }
+  if (n % 5 == 0) {
+    body << "  if (x == '') return x\n"
+  }
+  file.text = "define([], function () {\n  var x = 'm${n}';\n${body}  return { key: x };\n});\n"
+}
+
+(0..<60).each { module(new File(js, "a/m${it}.js"), it) }
+(0..<30).each { module(new File(js, "b/m${it}.js"), it) }
+new File(js, 'b/.jshintrc').text = '{ "asi": true }'
+(0..<30).each { module(new File(js, "c/d/m${it}.js"), it) }
+
+def properties = (0..<400).collect { "p${it}:${it}" }.join(',')
+new File(js, 'c/bundle.min.js').text = "var bundle={${properties}};\n"
+return true
@@ -0,0 +1,10 @@
+def report = { name -> new File(basedir, 'target/' + name).text }
+def log = new File(basedir, 'build.log').text
+
+assert report('single.xml').contains('<error ')
+assert report('single.xml') == report('forked-cold.xml')
+assert report('single.xml') == report('forked-warm.xml')
+assert log.contains('0 of 121 files unchanged since the last run')
+assert log.contains('121 of 121 files unchanged since the last run')
+assert log.contains('bundle.min.js')
+return true
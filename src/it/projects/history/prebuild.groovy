@@ -0,0 +1,16 @@
+// many small modules and a few large ones that come last in directory order, the worst case for the tail of a run
+def js = new File(basedir, 'target/js')
+js.deleteDir()
+js.mkdirs()
+new File(basedir, 'target/jshint.history').delete()
+
+(0..<200).each {
+  def body = it % 9 == 0 ? "  if (x == '') return x\n" : ''
+  new File(js, "a${it}.js").text = "define([], function () {\n  var x = 'a${it}';\n${body}  return { key: x };\n});\n"
+}
+(0..<3).each { n ->
+  def large = new StringBuilder()
+  (0..<3000).each { large << "var v${it} = ${it} == 0 ? 'a' : 'b';\n" }
+  new File(js, "z${n}.js").text = large.toString()
+}
+return true
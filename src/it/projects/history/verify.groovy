@@ -0,0 +1,19 @@
+def buildLog = new File(basedir, 'build.log').text
+// the first run has no history to go by but the file sizes, the second and partial ones have
+def criticalPaths = buildLog.readLines().findAll {
+  it.matches(/.*linted the slowest files first, critical path: [0-9.]+ ms predicted, [0-9.]+ ms actual/)
+}
+assert criticalPaths.size() == 3
+
+// the files are stored by name, and those the partial run didn't lint must still be there
+def history = new File(basedir, 'target/jshint.history').getText('ISO-8859-1')
+assert history.contains('a50.js')
+assert history.contains('z0.js')
+
+def report = { name -> new File(basedir, 'target/' + name).text }
+
+assert report('in-order.xml').contains('<error ')
+assert report('in-order.xml') == report('first.xml')
+assert report('in-order.xml') == report('second.xml')
+assert report('in-order.xml') == report('forked.xml')
+return true
@@ -0,0 +1,6 @@
+var app = {
+  name: 'app',
+  start: function () {
+    return this.name;
+  }
+};
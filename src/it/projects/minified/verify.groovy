@@ -0,0 +1,12 @@
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.contains('skipped bundle.min.js: looks minified or generated (1 lines')
+assert buildLog.contains('bundle.min.js looks minified or generated')
+assert buildLog.contains('JSHint gave up after 1 milliseconds')
+assert !buildLog.contains('skipped app.js')
+
+def report = { name -> new File(basedir, 'target/' + name).text }
+
+assert report('skip.xml').contains('<!-- skipped bundle.min.js: looks minified or generated')
+assert !report('warn.xml').contains('skipped')
+assert report('timeout.xml').contains('<!-- skipped bundle.min.js:')
+return true
@@ -0,0 +1,46 @@
+// a large corpus of small modules, medium and large sources and minified bundles, with violations at known places;
+// the expected counts in verify.groovy follow from the constants below
+def js = new File(basedir, 'target/js')
+js.deleteDir()
+
+def write = { String path, String text ->
+  def file = new File(js, path)
+  file.parentFile.mkdirs()
+  file.text = text
+}
+
+// 2400 small modules, every 8th with one violation
+(0..<2400).each {
+  def body = it % 8 == 0 ? "  if (x == '') return x;\n" : ''
+  write("small/p${it % 24}/s${it}.js",
+        "define([], function () {\n  var x = 's${it}';\n${body}  return { key: x };\n});\n")
+}
+
+// 300 medium sources of 20 functions, every 5th with two violations
+(0..<300).each { m ->
+  def text = new StringBuilder("var medium${m} = {};\n")
+  (0..<20).each {
+    def check = m % 5 == 0 && it % 10 == 0 ? '==' : '==='
+    text << "medium${m}.f${it} = function (a, b) {\n  var c = a + b * ${it};\n"
+    text << "  if (c ${check} null) {\n    return b;\n  }\n  return c;\n};\n"
+  }
+  write("medium/m${m}.js", text.toString())
+}
+
+// 20 large sources of 300 functions, each with six violations
+(0..<20).each { l ->
+  def text = new StringBuilder("var large${l} = {};\n")
+  (0..<300).each {
+    def check = it % 50 == 0 ? '==' : '==='
+    text << "large${l}.f${it} = function (a, b) {\n  var c = a + b * ${it};\n"
+    text << "  if (c ${check} null) {\n    return b;\n  }\n  return c;\n};\n"
+  }
+  write("large/l${l}.js", text.toString())
+}
+
+// 20 minified bundles, linted with a warning by default
+(0..<20).each { b ->
+  def properties = (0..<400).collect { "p${it}:${it * b}" }.join(',')
+  write("dist/bundle${b}.min.js", "var bundle${b}={${properties}};\n")
+}
+return true
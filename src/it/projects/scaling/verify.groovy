@@ -0,0 +1,42 @@
+def report = new File(basedir, 'target/jshint.xml').text
+
+// every violation is reported against the file it was generated in
+def dirs = ['small', 'medium', 'large', 'dist']
+def fileErrors = [:]
+def current = null
+report.readLines().each { line ->
+  if (line.contains('<file name=')) {
+    current = dirs.find { line.contains('"' + it + '/') || line.contains('"' + it + '\\') }
+  } else if (line.contains('<error ')) {
+    fileErrors[current] = (fileErrors[current] ?: 0) + 1
+  }
+}
+assert fileErrors['small'] == 2400.intdiv(8)
+assert fileErrors['medium'] == 300.intdiv(5) * 2
+assert fileErrors['large'] == 20 * 6
+assert fileErrors['dist'] == null
+def buildLog = new File(basedir, 'build.log').readLines()
+assert buildLog.findAll { it ==~ /.*dist[\/\\]bundle\d+\.min\.js looks minified or generated.*/ }.size() == 20 * 2
+
+// the second run lints the slowest files first, and still reports them in the order they were found
+assert buildLog.findAll { it.contains('linted the slowest files first') }.size() == 1
+assert new File(basedir, 'target/jshint-history.xml').text == report
+
+// limits can be set on the command line, e.g. mvn verify -Dit.scaling.maxSeconds=60
+def maxSeconds = Double.parseDouble(System.getProperty('it.scaling.maxSeconds', '180'))
+def maxHeap = Long.parseLong(System.getProperty('it.scaling.maxHeapMegabytes', '512'))
+['jshint-metrics.json', 'jshint-history-metrics.json'].each { name ->
+  // the top-level values of the metrics come before the per-file ones
+  def metrics = new File(basedir, 'target/' + name).readLines()
+  def metric = { String key -> metrics.find { it.contains('"' + key + '": ') }.split(': ')[1].replace(',', '').trim() }
+  assert metric('files') == (2400 + 300 + 20 + 20).toString()
+  assert metric('errors') == (300 + 120 + 120).toString()
+
+  def files = metric('files')
+  def seconds = Double.parseDouble(metric('total')) / 1000
+  def heap = Long.parseLong(metric('peakHeap')).intdiv(1024 * 1024)
+  println "scaling (${name}): ${files} files in ${seconds} s, peak heap ${heap} MB"
+  assert seconds <= maxSeconds : "${name}: took ${seconds} s, more than ${maxSeconds} s"
+  assert heap <= maxHeap : "${name}: peak heap ${heap} MB, more than ${maxHeap} MB"
+}
+return true
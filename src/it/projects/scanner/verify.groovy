@@ -0,0 +1,18 @@
+import groovy.json.JsonSlurper
+import org.codehaus.plexus.util.DirectoryScanner
+
+def scanner = new DirectoryScanner()
+scanner.basedir = new File(basedir, 'src/main/javascript')
+scanner.includes = ['**/*.js', 'lib/', '?eep/*.js'] as String[]
+scanner.excludes = ['**/node_modules/**', '**/*-min.js', 'vendor/**/*.js', '**/test/*Spec.js', 'build/'] as String[]
+scanner.scan()
+def expected = scanner.includedFiles.collect { it.replace('\\', '/') }.sort()
+
+assert expected.contains('lib/readme.txt')
+assert !expected.contains('vendor/x.js')
+
+['sequential.json', 'parallel.json'].each { name ->
+  def metrics = new JsonSlurper().parseText(new File(basedir, 'target/' + name).text)
+  assert expected == metrics.lint.file.collect { it.replace('\\', '/') }.sort()
+}
+return true
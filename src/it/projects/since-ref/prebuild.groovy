@@ -0,0 +1,26 @@
+// commit the sources, then change some of them
+def git(String... args) {
+  def process = (['git', '-c', 'user.name=it', '-c', 'user.email=it@localhost'] + args.toList()).execute(null, basedir)
+  process.waitFor()
+  assert process.exitValue() == 0 : process.err.text
+}
+
+def js = new File(basedir, 'src/main/javascript')
+
+// start over if the project was left behind by a previous run
+new File(basedir, '.git').deleteDir()
+new File(js, 'untracked.js').delete()
+new File(js, 'a-untracked.js').delete()
+new File(js, 'lib/untracked-min.js').delete()
+
+git 'init', '.'
+git 'add', 'src'
+git 'commit', '-m', 'sources'
+
+new File(js, 'lib/modified.js').text = 'var modified = 2\n'
+new File(js, 'untracked.js').text = 'var untracked = 1\n'
+// git lists it after lib/modified.js
+new File(js, 'a-untracked.js').text = 'var untracked = 2\n'
+new File(js, 'lib/untracked-min.js').text = 'garbage()\n'
+assert new File(js, 'deleted.js').delete()
+return true
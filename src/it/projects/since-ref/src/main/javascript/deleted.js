@@ -0,0 +1 @@
+var deleted = 1
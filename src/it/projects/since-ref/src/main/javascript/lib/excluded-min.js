@@ -0,0 +1 @@
+garbage()
@@ -0,0 +1 @@
+var modified = 1;
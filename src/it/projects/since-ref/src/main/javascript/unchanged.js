@@ -0,0 +1 @@
+var unchanged = 1
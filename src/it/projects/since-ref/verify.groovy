@@ -0,0 +1,10 @@
+def report = new File(basedir, 'target/jshint.xml')
+assert report.exists()
+
+def reportDoc = new XmlParser().parse(report)
+// in the order of a full scan, not the order git lists them in
+def files = reportDoc.file.@name.collect { it.replace('\\', '/') }
+assert ['a-untracked.js', 'lib/modified.js', 'untracked.js'] == files
+
+def buildLog = new File(basedir, 'build.log')
+assert buildLog.text.contains('3 source files changed since HEAD')
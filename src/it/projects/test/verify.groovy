@@ -10,3 +10,9 @@ def files = reportDoc.file
 
 assert 2 == files.size()
 assert 6 == files.error.size()
+
+def metrics = new groovy.json.JsonSlurper().parseText(new File(basedir, 'target/jshint-metrics.json').text)
+assert 2 == metrics.files
+assert 6 == metrics.errors
+assert ['test1.js', 'test2.js'] == metrics.lint.file.sort()
+assert buildLog.text.contains('slowest files:')
@@ -0,0 +1,390 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingInputStream;
+import com.vecna.maven.jshint.mojo.ErrorCompactor;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * A persistent cache of lint results.
+ * Entries are keyed by the source file name and a hash of its contents and effective options (see
+ * {@link #hash(String, JsHintOptions)}), since files in different directories may be linted with different options.
+ * The whole cache is tied to a key identifying the JSHint script; a cache file written with a different key is
+ * discarded.
+ * <p>
+ * Only an index of the entries is kept in memory. The errors stay in the cache file until they are looked up, and
+ * the errors recorded during a run go straight to a run file next to it, so a large legacy code base with hundreds
+ * of thousands of violations doesn't have to fit in the heap.
+ * </p>
+ * <p>
+ * Saving the cache keeps the entries of the files that weren't linted in a run, e.g. because only the files changed
+ * since a git ref were linted or linting stopped early, as long as the files still exist.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public class LintCache {
+  private static final int VERSION = 2;
+
+  /**
+   * The errors of a source file, serialized in a range of a file.
+   */
+  private static class Entry {
+    private final String m_contentHash;
+    private final RandomAccessFile m_store;
+    private final long m_offset;
+    private final int m_length;
+
+    Entry(String contentHash, RandomAccessFile store, long offset, int length) {
+      m_contentHash = contentHash;
+      m_store = store;
+      m_offset = offset;
+      m_length = length;
+    }
+
+    byte[] read() throws IOException {
+      byte[] bytes = new byte[m_length];
+      // the store is shared by all entries (and threads)
+      synchronized (m_store) {
+        m_store.seek(m_offset);
+        m_store.readFully(bytes);
+      }
+      return bytes;
+    }
+  }
+
+  private final File m_file;
+  private final String m_key;
+  private final RandomAccessFile m_previousStore;
+  private final Map<String, Entry> m_previous;
+  private final Map<String, Entry> m_current = new ConcurrentHashMap<String, Entry>();
+  private final AtomicInteger m_hits = new AtomicInteger();
+  private File m_runFile;
+  private RandomAccessFile m_runStore;
+
+  private LintCache(File file, String key, RandomAccessFile previousStore, Map<String, Entry> previous) {
+    m_file = file;
+    m_key = key;
+    m_previousStore = previousStore;
+    m_previous = previous;
+  }
+
+  /**
+   * Index the entries of a cache file
+   * @return the entries, or <code>null</code> if the file was written with a different key
+   */
+  private static Map<String, Entry> index(File file, String key, RandomAccessFile store) throws IOException {
+    CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+    DataInputStream in = new DataInputStream(counter);
+    try {
+      if (in.readInt() != VERSION || !key.equals(in.readUTF())) {
+        return null;
+      }
+      Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+      int fileCount = in.readInt();
+      for (int i = 0; i < fileCount; i++) {
+        String srcFile = in.readUTF();
+        String contentHash = in.readUTF();
+        long offset = counter.getCount();
+        int errorCount = in.readInt();
+        for (int j = 0; j < errorCount; j++) {
+          JsHintError.read(in);
+        }
+        entries.put(srcFile, new Entry(contentHash, store, offset, (int) (counter.getCount() - offset)));
+      }
+      return entries;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Load the cache from a file. A missing, unreadable or stale cache file results in an empty cache.
+   * @param file cache file
+   * @param key identifies the JSHint script
+   * @return the cache
+   */
+  public static LintCache load(File file, String key) {
+    if (file.isFile()) {
+      RandomAccessFile store = null;
+      try {
+        store = new RandomAccessFile(file, "r");
+        Map<String, Entry> entries = index(file, key, store);
+        if (entries != null) {
+          return new LintCache(file, key, store, entries);
+        }
+      } catch (IOException e) {
+        // start over
+      }
+      IOUtils.closeQuietly(store);
+    }
+    return new LintCache(file, key, null, new ConcurrentHashMap<String, Entry>());
+  }
+
+  /**
+   * Load the cache of results for a JSHint script.
+   * @param file cache file
+   * @param jsHint JSHint script
+   * @param compactor compacts the cached errors
+   * @return the cache
+   */
+  public static LintCache load(File file, JsScript jsHint, ErrorCompactor compactor) {
+    return load(file, key(jsHint, compactor));
+  }
+
+  /**
+   * @return the key of the cache of results for a JSHint script
+   */
+  private static String key(JsScript jsHint, ErrorCompactor compactor) {
+    // errors cached with a different evidence limit are not what the current run would report
+    return jsHint.getHash() + "/" + compactor.getMaxEvidenceLength();
+  }
+
+  /**
+   * @param source contents of a source file
+   * @param options effective options of the source file
+   * @return the hash to look up and record the errors of the source file with
+   */
+  public static String hash(String source, JsHintOptions options) {
+    return Hashing.sha1().newHasher().putString(options.hash(), Charsets.UTF_8).putUnencodedChars(source).hash()
+        .toString();
+  }
+
+  /**
+   * Look up the errors of a source file.
+   * @param srcFile source file name
+   * @param contentHash hash of the source file contents and options
+   * @return the cached errors or <code>null</code> if the file is not cached or has changed
+   */
+  public List<JsHintError> get(String srcFile, String contentHash) {
+    Entry entry = m_previous.get(srcFile);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.m_contentHash.equals(contentHash)) {
+      // the file has changed, so the entry is of no use even if the file isn't linted again
+      m_previous.remove(srcFile);
+      return null;
+    }
+
+    List<JsHintError> errors;
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.read()));
+      int errorCount = in.readInt();
+      errors = new ArrayList<JsHintError>(errorCount);
+      for (int i = 0; i < errorCount; i++) {
+        errors.add(JsHintError.read(in));
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    m_current.put(srcFile, entry);
+    m_hits.incrementAndGet();
+    return errors;
+  }
+
+  /**
+   * Record the errors of a source file.
+   * If the run file cannot be written, the source file is simply linted again next time.
+   * @param srcFile source file name
+   * @param contentHash hash of the source file contents and options
+   * @param errors the errors found in the file
+   */
+  public void put(String srcFile, String contentHash, List<JsHintError> errors) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(errors.size());
+      for (JsHintError error : errors) {
+        error.write(out);
+      }
+      m_current.put(srcFile, append(contentHash, bytes.toByteArray()));
+    } catch (IOException e) {
+      m_current.remove(srcFile);
+    }
+  }
+
+  /**
+   * Append serialized errors to the run file, creating it if necessary
+   */
+  private synchronized Entry append(String contentHash, byte[] bytes) throws IOException {
+    if (m_runStore == null) {
+      FileUtils.forceMkdir(m_file.getParentFile());
+      m_runFile = File.createTempFile(m_file.getName(), ".run", m_file.getParentFile());
+      m_runStore = new RandomAccessFile(m_runFile, "rw");
+    }
+    long offset;
+    synchronized (m_runStore) {
+      offset = m_runStore.length();
+      m_runStore.seek(offset);
+      m_runStore.write(bytes);
+    }
+    return new Entry(contentHash, m_runStore, offset, bytes.length);
+  }
+
+  /**
+   * @return the number of successful lookups
+   */
+  public int getHitCount() {
+    return m_hits.get();
+  }
+
+  /**
+   * @return the entries of the files that still exist under the base directory
+   */
+  private static Map<String, Entry> existing(Map<String, Entry> entries, File baseDir) {
+    Map<String, Entry> existing = new HashMap<String, Entry>();
+    for (Map.Entry<String, Entry> keyval : entries.entrySet()) {
+      if (new File(baseDir, keyval.getKey()).isFile()) {
+        existing.put(keyval.getKey(), keyval.getValue());
+      }
+    }
+    return existing;
+  }
+
+  /**
+   * Write the cache back to the cache file, and close the cache. The entries looked up or recorded since the cache
+   * was loaded are written along with the other entries loaded from the file, except those of deleted files.
+   * @param baseDir directory the source file names are relative to
+   * @throws IOException if the file cannot be written
+   */
+  public void save(File baseDir) throws IOException {
+    try {
+      Map<String, Entry> entries = existing(m_previous, baseDir);
+      entries.putAll(m_current);
+      write(m_file, m_key, entries, this);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Write only the entries looked up or recorded since the cache was loaded to a cache file, and close the cache.
+   * @param file cache file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void saveLinted(File file) throws IOException {
+    try {
+      write(file, m_key, m_current, this);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Combine cache files written by separate JVMs, each for its own source files (see {@link #saveLinted(File)}),
+   * into a single cache file. The entries already in the cache file are kept unless a part replaces them or their
+   * source files were deleted. The combined files are deleted.
+   * @param file cache file to write
+   * @param baseDir directory the source file names are relative to
+   * @param parts cache files to combine
+   * @param jsHint JSHint script
+   * @param compactor compacts the cached errors
+   * @throws IOException if the file cannot be written
+   */
+  public static void merge(File file, File baseDir, List<File> parts, JsScript jsHint, ErrorCompactor compactor)
+      throws IOException {
+    String key = key(jsHint, compactor);
+    LintCache previous = load(file, key);
+    List<LintCache> caches = new ArrayList<LintCache>();
+    caches.add(previous);
+    Map<String, Entry> entries = existing(previous.m_previous, baseDir);
+    try {
+      for (File part : parts) {
+        LintCache cache = load(part, key);
+        caches.add(cache);
+        entries.putAll(cache.m_previous);
+      }
+      write(file, key, entries, previous);
+    } finally {
+      for (LintCache cache : caches) {
+        cache.close();
+      }
+      for (File part : parts) {
+        FileUtils.deleteQuietly(part);
+      }
+    }
+  }
+
+  /**
+   * Write entries to a cache file
+   * @param loadedFrom cache the entries come from, closed before its file is replaced (may be <code>null</code>)
+   */
+  private static void write(File file, String key, Map<String, Entry> entries, LintCache loadedFrom)
+      throws IOException {
+    FileUtils.forceMkdir(file.getParentFile());
+    File tmp = new File(file.getPath() + ".tmp");
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      out.writeInt(VERSION);
+      out.writeUTF(key);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Entry> keyval : entries.entrySet()) {
+        out.writeUTF(keyval.getKey());
+        out.writeUTF(keyval.getValue().m_contentHash);
+        out.write(keyval.getValue().read());
+      }
+    } finally {
+      out.close();
+    }
+
+    // the previous cache file must be closed before it can be replaced
+    if (loadedFrom != null) {
+      loadedFrom.close();
+    }
+    FileUtils.deleteQuietly(file);
+    FileUtils.moveFile(tmp, file);
+  }
+
+  /**
+   * Close the cache without saving it, discarding the entries recorded since it was loaded.
+   */
+  public synchronized void close() {
+    IOUtils.closeQuietly(m_previousStore);
+    if (m_runStore != null) {
+      IOUtils.closeQuietly(m_runStore);
+      FileUtils.deleteQuietly(m_runFile);
+      m_runStore = null;
+    }
+  }
+}
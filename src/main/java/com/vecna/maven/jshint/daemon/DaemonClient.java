@@ -0,0 +1,322 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.hash.Hashing;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.mojo.LintListener;
+import com.vecna.maven.jshint.mojo.MinifiedFilePolicy;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Sends lint requests to a {@link JsHintDaemon}, starting one in the background if none is running.
+ * Any failure to reach the daemon is reported as "no files linted" so that the caller can lint in-process instead.
+ * @author ogolberg@vecna.com
+ */
+public class DaemonClient {
+  private static final int CONNECT_TIMEOUT = 1000;
+  private static final int READ_TIMEOUT = (int) TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Don't start another daemon while a previously started one may still be bootstrapping.
+   */
+  private static final long STARTUP_GRACE_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+  private final File m_directory;
+  private final String m_jsHintJS;
+  private final boolean m_precompiled;
+  private final String m_engine;
+  private final int m_threads;
+  private final EngineRecycling m_recycling;
+  private final int m_idleTimeout;
+  private final Log m_log;
+
+  /**
+   * Create a new client
+   * @param directory directory with the daemon state files and logs
+   * @param jsHintJS path of the JSHint script on the classpath
+   * @param precompiled whether the daemon should use the precompiled JSHint
+   * @param engine name of the JS engine backend the daemon should run JSHint on
+   * @param threads number of daemon worker threads
+   * @param recycling when the daemon should replace its engines with freshly bootstrapped ones
+   * @param idleTimeout number of seconds a started daemon stays alive while idle
+   * @param log log
+   */
+  public DaemonClient(File directory, String jsHintJS, boolean precompiled, String engine, int threads,
+                      EngineRecycling recycling, int idleTimeout, Log log) {
+    m_directory = directory;
+    m_jsHintJS = jsHintJS;
+    m_precompiled = precompiled;
+    m_engine = engine;
+    m_threads = threads;
+    m_recycling = recycling;
+    m_idleTimeout = idleTimeout;
+    m_log = log;
+  }
+
+  /**
+   * @return the classpath of the plugin (plus the Maven plugin API), or <code>null</code> if it can't be determined
+   */
+  static List<String> getClasspath() {
+    ClassLoader classLoader = DaemonClient.class.getClassLoader();
+    if (!(classLoader instanceof URLClassLoader)) {
+      return null;
+    }
+
+    List<String> classpath = new ArrayList<String>();
+    try {
+      for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+        classpath.add(new File(url.toURI()).getPath());
+      }
+      // the plugin API is provided by Maven rather than the plugin class loader
+      URL api = MojoExecutionException.class.getProtectionDomain().getCodeSource().getLocation();
+      String apiPath = new File(api.toURI()).getPath();
+      if (!classpath.contains(apiPath)) {
+        classpath.add(apiPath);
+      }
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+    return classpath;
+  }
+
+  /**
+   * Start a daemon in the background
+   */
+  private void start(List<String> classpath, File stateFile) throws IOException {
+    File marker = new File(stateFile.getPath() + ".starting");
+    if (System.currentTimeMillis() - marker.lastModified() < STARTUP_GRACE_PERIOD) {
+      return;
+    }
+    FileUtils.touch(marker);
+
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    ProcessBuilder builder = new ProcessBuilder(java, "-cp", Joiner.on(File.pathSeparator).join(classpath),
+                                                JsHintDaemon.class.getName(), stateFile.getPath(), m_jsHintJS,
+                                                String.valueOf(m_precompiled), m_engine, String.valueOf(m_threads),
+                                                String.valueOf(m_idleTimeout),
+                                                String.valueOf(m_recycling.getMaxFiles()),
+                                                String.valueOf(m_recycling.getMaxHeapPercent()));
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(ProcessBuilder.Redirect.appendTo(new File(m_directory, "daemon.log")));
+    builder.start();
+    m_log.info("started a lint daemon, linting in-process until it is ready");
+  }
+
+  /**
+   * @return the published state of a running daemon or <code>null</code> if there is none
+   */
+  private Properties readState(File stateFile) {
+    if (!stateFile.isFile()) {
+      return null;
+    }
+    Properties state = new Properties();
+    InputStream in = null;
+    try {
+      in = new FileInputStream(stateFile);
+      state.load(in);
+      return state;
+    } catch (IOException e) {
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  private Socket connect(Properties state) throws IOException {
+    Socket socket = new Socket();
+    try {
+      int port = Integer.parseInt(state.getProperty(DaemonProtocol.PORT));
+      socket.connect(new InetSocketAddress(InetAddress.getByName(null), port), CONNECT_TIMEOUT);
+      socket.setSoTimeout(READ_TIMEOUT);
+      return socket;
+    } catch (IOException | NumberFormatException e) {
+      IOUtils.closeQuietly(socket);
+      throw new IOException("cannot connect to the lint daemon", e);
+    }
+  }
+
+  /**
+   * Ask a daemon to exit
+   */
+  private void shutdown(Properties state) {
+    Socket socket = null;
+    try {
+      socket = connect(state);
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(DaemonProtocol.VERSION);
+      out.writeUTF(state.getProperty(DaemonProtocol.TOKEN));
+      out.writeInt(DaemonProtocol.SHUTDOWN);
+      out.flush();
+    } catch (IOException e) {
+      m_log.debug("failed to stop the lint daemon", e);
+    } finally {
+      IOUtils.closeQuietly(socket);
+    }
+  }
+
+  /**
+   * Lint source files in the daemon. Results are passed to the listener as they arrive; if the daemon is not running
+   * or fails midway, the caller is expected to lint the remaining files itself.
+   * @param jsHint JSHint script the results must come from
+   * @param baseDir directory the source files are relative to
+   * @param sourceFiles source files
+   * @param options effective options of each source file
+   * @param charset encoding of the source files
+   * @param cacheFile lint result cache file (may be <code>null</code>)
+   * @param minifiedPolicy what to do with files that look minified
+   * @param minifiedTimeout timeout for linting a file that looks minified, in milliseconds
+   * @param fileTimeout timeout for linting any file, in milliseconds (0 for no limit)
+   * @param batchSize maximum number of small files to lint in a single call into the engine
+   * @param maxEvidenceLength maximum number of characters of evidence to keep (0 for no limit)
+   * @param listener receives the errors of each source file, in the same order as the source files
+   * @return the number of source files (from the start of the array) whose results were passed to the listener
+   * @throws MojoExecutionException if linting fails in the daemon or the listener fails
+   */
+  public int lint(JsScript jsHint, File baseDir, String[] sourceFiles, JsHintOptions[] options, Charset charset,
+                  File cacheFile, MinifiedFilePolicy minifiedPolicy, long minifiedTimeout, long fileTimeout,
+                  int batchSize, int maxEvidenceLength, LintListener listener) throws MojoExecutionException {
+    List<String> classpath = getClasspath();
+    if (classpath == null) {
+      m_log.warn("cannot determine the plugin classpath, the lint daemon is not available");
+      return 0;
+    }
+
+    String key = Hashing.sha1().hashString(Joiner.on('\n').join(classpath) + '\n' + m_jsHintJS + '\n'
+                                           + m_precompiled + '\n' + m_engine + '\n' + m_threads + '\n'
+                                           + m_recycling.getMaxFiles() + '\n' + m_recycling.getMaxHeapPercent(),
+                                           Charsets.UTF_8)
+        .toString();
+    File stateFile = new File(m_directory, "daemon-" + key + ".properties");
+
+    try {
+      FileUtils.forceMkdir(m_directory);
+      Properties state = readState(stateFile);
+      if (state == null) {
+        start(classpath, stateFile);
+        return 0;
+      }
+
+      Socket socket;
+      try {
+        socket = connect(state);
+      } catch (IOException e) {
+        m_log.debug("lint daemon is gone", e);
+        stateFile.delete();
+        start(classpath, stateFile);
+        return 0;
+      }
+
+      try {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(DaemonProtocol.VERSION);
+        out.writeUTF(state.getProperty(DaemonProtocol.TOKEN));
+        out.writeInt(DaemonProtocol.LINT);
+        out.writeUTF(jsHint.getHash());
+        new LintRequest(charset, cacheFile, minifiedPolicy, minifiedTimeout, fileTimeout, batchSize, maxEvidenceLength,
+                        baseDir, sourceFiles, options).write(out);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        int status = in.readInt();
+        if (status == DaemonProtocol.WRONG_SCRIPT) {
+          m_log.info("JSHint has changed, restarting the lint daemon");
+          shutdown(state);
+          stateFile.delete();
+          start(classpath, stateFile);
+          return 0;
+        } else if (status != DaemonProtocol.OK) {
+          return 0;
+        }
+
+        return receive(in, sourceFiles, cacheFile != null, listener);
+      } finally {
+        IOUtils.closeQuietly(socket);
+      }
+    } catch (IOException e) {
+      m_log.warn("lint daemon failed, linting in-process", e);
+      return 0;
+    }
+  }
+
+  /**
+   * Receive the results of a lint request
+   */
+  private int receive(DataInputStream in, String[] sourceFiles, boolean cached, LintListener listener)
+      throws MojoExecutionException {
+    int received = 0;
+    try {
+      for (; received < sourceFiles.length; received++) {
+        int errorCount = in.readInt();
+        if (errorCount == DaemonProtocol.SKIPPED) {
+          listener.fileSkipped(sourceFiles[received], DaemonProtocol.readString(in));
+          continue;
+        } else if (errorCount == DaemonProtocol.TIMED_OUT) {
+          listener.fileTimedOut(sourceFiles[received], DaemonProtocol.readString(in));
+          continue;
+        } else if (errorCount == DaemonProtocol.FLAGGED) {
+          listener.fileFlagged(sourceFiles[received], DaemonProtocol.readString(in));
+          errorCount = in.readInt();
+        }
+        if (errorCount == DaemonProtocol.ABORTED) {
+          throw new MojoExecutionException(DaemonProtocol.readString(in));
+        }
+        List<JsHintError> errors = new ArrayList<JsHintError>(errorCount);
+        for (int i = 0; i < errorCount; i++) {
+          errors.add(JsHintError.read(in));
+        }
+        listener.fileLinted(sourceFiles[received], errors);
+      }
+      int hits = in.readInt();
+      if (cached) {
+        m_log.info(hits + " of " + sourceFiles.length + " files unchanged since the last run");
+      }
+    } catch (IOException e) {
+      m_log.warn("lost the connection to the lint daemon, linting the remaining files in-process", e);
+    }
+    return received;
+  }
+}
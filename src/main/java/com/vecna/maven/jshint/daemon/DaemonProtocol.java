@@ -0,0 +1,87 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Constants and helpers shared by the lint daemon and its client.
+ * <p>
+ * A request starts with the protocol version, the daemon token and a command. A {@link #LINT} request continues with
+ * the hash of the JSHint script the client expects, the encoding, the cache file (or an empty string), the minified
+ * file policy and timeout, the file timeout, the batch size, the evidence length limit, the source directory, the
+ * distinct sets of effective options and globals, and the source files, each followed by the index of its options.
+ * The daemon answers with a status; if the status is {@link #OK}, it then sends the error count and the errors of
+ * each source file, in order, followed by the number of cache hits.
+ * Instead of an error count, a file may get {@link #SKIPPED} and the reason, {@link #TIMED_OUT} and a message, or
+ * {@link #FLAGGED} and a warning followed by its error count and errors; {@link #ABORTED} and a message end the
+ * results early.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+final class DaemonProtocol {
+  static final int VERSION = 6;
+
+  static final int LINT = 1;
+  static final int SHUTDOWN = 2;
+
+  static final int OK = 0;
+  static final int WRONG_SCRIPT = 1;
+  static final int FAILED = 2;
+
+  static final int ABORTED = -1;
+  static final int SKIPPED = -2;
+  static final int FLAGGED = -3;
+  static final int TIMED_OUT = -4;
+
+  static final String PORT = "port";
+  static final String TOKEN = "token";
+  static final String SCRIPT_HASH = "scriptHash";
+
+  private DaemonProtocol() {
+  }
+
+  /**
+   * Write a string of any length (or <code>null</code>)
+   */
+  static void writeString(DataOutput out, String str) throws IOException {
+    if (str == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = str.getBytes(Charsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Read a string written with {@link #writeString(DataOutput, String)}
+   */
+  static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+}
@@ -0,0 +1,375 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.google.common.base.Joiner;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vecna.maven.jshint.cache.LintCache;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.mojo.ErrorCompactor;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.mojo.LintListener;
+import com.vecna.maven.jshint.mojo.MinifiedFilePolicy;
+import com.vecna.maven.jshint.mojo.OrderedResults;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Lints source files in several forked JVMs ({@link LintFork}), so that a very large source tree isn't bound by the
+ * heap and the GC pauses of a single JVM. The source files are split into shards of about the same expected lint time
+ * (or total size), each linted by its own JVM with its own JSHint engines, costliest files first. The results are
+ * passed on in the order of the source files, just like an in-process run. The forks are killed if linting fails or the
+ * build JVM exits.
+ * <p>
+ * With the lint cache, each fork looks its files up in the cache file and saves the entries of its shard to a file of
+ * its own; the shards are combined into the cache file once every fork has finished.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public class ForkedLinter {
+  private final List<String> m_classpath;
+  private final String m_jsHintJS;
+  private final boolean m_precompiled;
+  private final String m_engine;
+  private final File m_snapshotDirectory;
+  private final int m_threads;
+  private final EngineRecycling m_recycling;
+  private final Log m_log;
+
+  private ForkedLinter(List<String> classpath, String jsHintJS, boolean precompiled, String engine,
+                       File snapshotDirectory, int threads, EngineRecycling recycling, Log log) {
+    m_classpath = classpath;
+    m_jsHintJS = jsHintJS;
+    m_precompiled = precompiled;
+    m_engine = engine;
+    m_snapshotDirectory = snapshotDirectory;
+    m_threads = threads;
+    m_recycling = recycling;
+    m_log = log;
+  }
+
+  /**
+   * Create a new linter
+   * @param jsHintJS path of the JSHint script on the classpath
+   * @param precompiled whether the forks should use the precompiled JSHint
+   * @param engine name of the JS engine backend the forks should run JSHint on
+   * @param snapshotDirectory directory with the scope snapshots (may be <code>null</code>)
+   * @param threads number of worker threads of each fork
+   * @param recycling when the forks should replace their engines with freshly bootstrapped ones
+   * @param log log
+   * @return the linter, or <code>null</code> if the plugin classpath can't be determined
+   */
+  public static ForkedLinter create(String jsHintJS, boolean precompiled, String engine, File snapshotDirectory,
+                                    int threads, EngineRecycling recycling, Log log) {
+    List<String> classpath = DaemonClient.getClasspath();
+    if (classpath == null) {
+      return null;
+    }
+    return new ForkedLinter(classpath, jsHintJS, precompiled, engine, snapshotDirectory, threads, recycling, log);
+  }
+
+  /**
+   * A shard of the source files.
+   */
+  private static class Shard {
+    private final List<Integer> m_indexes = new ArrayList<Integer>();
+    private long m_cost;
+  }
+
+  /**
+   * Split the source files into shards of about the same total cost: the costliest files go first, each to the
+   * cheapest shard so far.
+   * @param costs cost (expected lint time or size) of each source file
+   * @param count number of shards
+   * @return the indexes of the source files in each shard, costliest first
+   */
+  static int[][] shard(final long[] costs, int count) {
+    Integer[] byCost = new Integer[costs.length];
+    for (int i = 0; i < byCost.length; i++) {
+      byCost[i] = i;
+    }
+    Arrays.sort(byCost, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Long.compare(costs[b], costs[a]);
+      }
+    });
+
+    PriorityQueue<Shard> shards = new PriorityQueue<Shard>(count, new Comparator<Shard>() {
+      @Override
+      public int compare(Shard a, Shard b) {
+        return Long.compare(a.m_cost, b.m_cost);
+      }
+    });
+    for (int i = 0; i < count; i++) {
+      shards.add(new Shard());
+    }
+    for (Integer index : byCost) {
+      Shard cheapest = shards.poll();
+      cheapest.m_indexes.add(index);
+      cheapest.m_cost += costs[index];
+      shards.add(cheapest);
+    }
+
+    // a fork lints its shard in order, so that no worker is left alone with a large file at the end
+    List<int[]> indexes = new ArrayList<int[]>();
+    for (Shard shard : shards) {
+      if (!shard.m_indexes.isEmpty()) {
+        indexes.add(Ints.toArray(shard.m_indexes));
+      }
+    }
+    return indexes.toArray(new int[indexes.size()][]);
+  }
+
+  /**
+   * Start a fork and send it its shard
+   */
+  private Process start(LintRequest request, File cachePart) throws IOException {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    ProcessBuilder builder = new ProcessBuilder(java, "-cp", Joiner.on(File.pathSeparator).join(m_classpath),
+                                                LintFork.class.getName(), m_jsHintJS, String.valueOf(m_precompiled),
+                                                m_engine,
+                                                m_snapshotDirectory == null ? "" : m_snapshotDirectory.getPath(),
+                                                String.valueOf(m_threads),
+                                                cachePart == null ? "" : cachePart.getPath(),
+                                                String.valueOf(m_recycling.getMaxFiles()),
+                                                String.valueOf(m_recycling.getMaxHeapPercent()));
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    Process process = builder.start();
+    // the standard input stays open: the fork exits when it is closed
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+    request.write(out);
+    out.flush();
+    return process;
+  }
+
+  /**
+   * Receive the results of a shard
+   * @return the number of cache hits
+   */
+  private static int receive(Process process, int[] shard, OrderedResults results)
+      throws IOException, MojoExecutionException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    String warning = null;
+    for (int i = 0; i < shard.length;) {
+      int errorCount = in.readInt();
+      if (errorCount == DaemonProtocol.SKIPPED) {
+        results.skip(shard[i++], DaemonProtocol.readString(in));
+        continue;
+      } else if (errorCount == DaemonProtocol.TIMED_OUT) {
+        results.timeOut(shard[i++], DaemonProtocol.readString(in));
+        continue;
+      } else if (errorCount == DaemonProtocol.FLAGGED) {
+        warning = DaemonProtocol.readString(in);
+        continue;
+      } else if (errorCount == DaemonProtocol.ABORTED) {
+        throw new MojoExecutionException(DaemonProtocol.readString(in));
+      }
+      List<JsHintError> errors = new ArrayList<JsHintError>(errorCount);
+      for (int j = 0; j < errorCount; j++) {
+        errors.add(JsHintError.read(in));
+      }
+      if (warning != null) {
+        results.complete(shard[i++], errors, warning);
+        warning = null;
+      } else {
+        results.complete(shard[i++], errors);
+      }
+    }
+    return in.readInt();
+  }
+
+  /**
+   * Lint source files in forked JVMs.
+   * @param forkCount number of JVMs to fork
+   * @param jsHint JSHint script
+   * @param baseDir directory the source files are relative to
+   * @param sourceFiles source files
+   * @param estimates expected lint time of each source file (may be <code>null</code> to go by the file sizes)
+   * @param options effective options of each source file
+   * @param charset encoding of the source files
+   * @param cacheFile lint result cache file (may be <code>null</code>)
+   * @param minifiedPolicy what to do with files that look minified
+   * @param minifiedTimeout timeout for linting a file that looks minified, in milliseconds
+   * @param fileTimeout timeout for linting any file, in milliseconds (0 for no limit)
+   * @param batchSize maximum number of small files to lint in a single call into the engine
+   * @param maxEvidenceLength maximum number of characters of evidence to keep (0 for no limit)
+   * @param listener receives the errors of each source file, in the same order as the source files
+   * @throws MojoExecutionException if a fork cannot be started or fails, or the listener fails
+   */
+  public void lint(int forkCount, JsScript jsHint, File baseDir, String[] sourceFiles, long[] estimates,
+                   JsHintOptions[] options, Charset charset, File cacheFile, MinifiedFilePolicy minifiedPolicy,
+                   long minifiedTimeout, long fileTimeout, int batchSize, int maxEvidenceLength, LintListener listener)
+      throws MojoExecutionException {
+    long[] costs = estimates;
+    if (costs == null) {
+      costs = new long[sourceFiles.length];
+      for (int i = 0; i < costs.length; i++) {
+        costs[i] = new File(baseDir, sourceFiles[i]).length();
+      }
+    }
+    final int[][] shards = shard(costs, forkCount);
+    m_log.debug("linting in " + shards.length + " forked JVMs");
+
+    final OrderedResults results = new OrderedResults(sourceFiles, listener);
+    final List<Process> processes = new ArrayList<Process>();
+    List<File> cacheParts = new ArrayList<File>();
+    Thread killer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        destroy(processes);
+      }
+    }, "jshint-fork-killer");
+    Runtime.getRuntime().addShutdownHook(killer);
+    ExecutorService readers = Executors.newFixedThreadPool(shards.length, new ThreadFactoryBuilder()
+        .setNameFormat("jshint-fork-%d").setDaemon(true).build());
+
+    boolean complete = false;
+    try {
+      CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(readers);
+      for (int k = 0; k < shards.length; k++) {
+        final int[] shard = shards[k];
+        String[] shardFiles = new String[shard.length];
+        JsHintOptions[] shardOptions = new JsHintOptions[shard.length];
+        for (int i = 0; i < shard.length; i++) {
+          shardFiles[i] = sourceFiles[shard[i]];
+          shardOptions[i] = options[shard[i]];
+        }
+        File cachePart = cacheFile == null ? null : new File(cacheFile.getPath() + ".fork" + k);
+        if (cachePart != null) {
+          // left over if the build JVM was killed
+          cachePart.delete();
+          cacheParts.add(cachePart);
+        }
+
+        final Process process;
+        try {
+          process = start(new LintRequest(charset, cacheFile, minifiedPolicy, minifiedTimeout, fileTimeout, batchSize,
+                                          maxEvidenceLength, baseDir, shardFiles, shardOptions), cachePart);
+        } catch (IOException e) {
+          throw new MojoExecutionException("failed to start a lint fork", e);
+        }
+        synchronized (processes) {
+          processes.add(process);
+        }
+
+        completion.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws MojoExecutionException {
+            try {
+              return receive(process, shard, results);
+            } catch (IOException e) {
+              throw new MojoExecutionException("lost the connection to a lint fork", e);
+            }
+          }
+        });
+      }
+
+      // fail as soon as any of the forks fails, without waiting for the others
+      int hits = 0;
+      for (int k = 0; k < shards.length; k++) {
+        hits += completion.take().get();
+      }
+      complete = true;
+      if (cacheFile != null) {
+        m_log.info(hits + " of " + sourceFiles.length + " files unchanged since the last run");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("interrupted while linting", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof MojoExecutionException) {
+        throw (MojoExecutionException) e.getCause();
+      } else {
+        throw new MojoExecutionException("failed to lint", e.getCause());
+      }
+    } finally {
+      results.close();
+      destroy(processes);
+      readers.shutdownNow();
+      try {
+        Runtime.getRuntime().removeShutdownHook(killer);
+      } catch (IllegalStateException e) {
+        // the build JVM is exiting, the hook takes care of the forks
+      }
+      mergeCache(cacheFile, baseDir, cacheParts, complete, jsHint, maxEvidenceLength);
+    }
+  }
+
+  /**
+   * Combine the cache files of the forks, or discard them if some forks didn't finish
+   */
+  private void mergeCache(File cacheFile, File baseDir, List<File> cacheParts, boolean complete, JsScript jsHint,
+                          int maxEvidenceLength) {
+    if (cacheFile == null) {
+      return;
+    }
+    if (!complete) {
+      for (File part : cacheParts) {
+        part.delete();
+      }
+      return;
+    }
+    try {
+      LintCache.merge(cacheFile, baseDir, cacheParts, jsHint, new ErrorCompactor(maxEvidenceLength));
+    } catch (IOException e) {
+      m_log.warn("failed to write the lint cache " + cacheFile, e);
+    }
+  }
+
+  /**
+   * Kill the forks that are still running and wait for them to exit
+   */
+  private static void destroy(List<Process> processes) {
+    synchronized (processes) {
+      for (Process process : processes) {
+        process.destroy();
+      }
+      for (Process process : processes) {
+        try {
+          process.waitFor();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+}
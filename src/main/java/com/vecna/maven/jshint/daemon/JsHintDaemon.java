@@ -0,0 +1,251 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import com.vecna.maven.jshint.cache.LintCache;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.mojo.ErrorCompactor;
+import com.vecna.maven.jshint.mojo.JsHintRunner;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * A background JVM that keeps bootstrapped JSHint engines around and lints files on behalf of plugin executions.
+ * Listens on a loopback socket whose port is published, along with an access token, in a state file. Exits once it
+ * has been idle for the configured time or when asked to shut down.
+ * <p>
+ * Arguments: state file, JSHint script path, whether to use the precompiled JSHint, JS engine backend, number of
+ * threads, idle timeout in seconds, number of files after which an engine is recycled, share of the heap in percent
+ * after which an engine is recycled (see {@link EngineRecycling}).
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public final class JsHintDaemon {
+  private final File m_stateFile;
+  private final JsHintRunner m_runner;
+  private final ServerSocket m_server;
+  private final String m_token;
+  private final AtomicInteger m_active = new AtomicInteger();
+  private volatile boolean m_shutdown;
+
+  private JsHintDaemon(File stateFile, JsHintRunner runner, ServerSocket server) {
+    m_stateFile = stateFile;
+    m_runner = runner;
+    m_server = server;
+    m_token = new BigInteger(130, new SecureRandom()).toString(32);
+  }
+
+  /**
+   * Publish the port and the token in the state file, readable only by the current user
+   */
+  private void writeState() throws IOException {
+    Properties state = new Properties();
+    state.setProperty(DaemonProtocol.PORT, String.valueOf(m_server.getLocalPort()));
+    state.setProperty(DaemonProtocol.TOKEN, m_token);
+    state.setProperty(DaemonProtocol.SCRIPT_HASH, m_runner.getJsHint().getHash());
+
+    File tmp = new File(m_stateFile.getPath() + ".tmp");
+    tmp.delete();
+    tmp.createNewFile();
+    tmp.setReadable(false, false);
+    tmp.setReadable(true, true);
+    OutputStream out = new FileOutputStream(tmp);
+    try {
+      state.store(out, "jshint daemon");
+    } finally {
+      out.close();
+    }
+    FileUtils.deleteQuietly(m_stateFile);
+    FileUtils.moveFile(tmp, m_stateFile);
+  }
+
+  /**
+   * Remove the state file unless another daemon has replaced it
+   */
+  private void removeState() {
+    Properties state = new Properties();
+    InputStream in = null;
+    try {
+      in = new FileInputStream(m_stateFile);
+      state.load(in);
+    } catch (IOException e) {
+      return;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    if (m_token.equals(state.getProperty(DaemonProtocol.TOKEN))) {
+      m_stateFile.delete();
+    }
+  }
+
+  /**
+   * Accept connections until idle or shut down
+   */
+  private void serve(int idleTimeout) throws IOException {
+    m_server.setSoTimeout(idleTimeout);
+    while (!m_shutdown) {
+      final Socket socket;
+      try {
+        socket = m_server.accept();
+      } catch (SocketTimeoutException e) {
+        if (m_active.get() == 0) {
+          return;
+        } else {
+          continue;
+        }
+      } catch (IOException e) {
+        if (m_shutdown) {
+          return;
+        } else {
+          throw e;
+        }
+      }
+
+      m_active.incrementAndGet();
+      Thread handler = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            handle(socket);
+          } catch (IOException e) {
+            System.err.println("request failed: " + e);
+          } finally {
+            IOUtils.closeQuietly(socket);
+            m_active.decrementAndGet();
+          }
+        }
+      }, "jshint-daemon-request");
+      handler.setDaemon(true);
+      handler.start();
+    }
+  }
+
+  /**
+   * Handle a single request
+   */
+  private void handle(Socket socket) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+    if (in.readInt() != DaemonProtocol.VERSION || !m_token.equals(in.readUTF())) {
+      return;
+    }
+
+    if (in.readInt() == DaemonProtocol.SHUTDOWN) {
+      m_shutdown = true;
+      m_server.close();
+      return;
+    }
+
+    String scriptHash = in.readUTF();
+    if (!scriptHash.equals(m_runner.getJsHint().getHash())) {
+      out.writeInt(DaemonProtocol.WRONG_SCRIPT);
+      out.flush();
+      return;
+    }
+
+    LintRequest request = LintRequest.read(in);
+    ErrorCompactor compactor = new ErrorCompactor(request.m_maxEvidenceLength);
+    LintCache cache = request.m_cacheFile == null ? null
+        : LintCache.load(request.m_cacheFile, m_runner.getJsHint(), compactor);
+
+    ResultWriter results = new ResultWriter(out);
+    out.writeInt(DaemonProtocol.OK);
+    try {
+      m_runner.lint(request.m_baseDir, request.m_sourceFiles, null, request.m_options, request.m_charset, cache, null,
+                    request.m_minifiedPolicy, request.m_minifiedTimeout, request.m_fileTimeout, request.m_batchSize,
+                    compactor, results);
+    } catch (MojoExecutionException e) {
+      if (cache != null) {
+        cache.close();
+      }
+      results.abort(e.getMessage());
+      return;
+    }
+
+    int hits = 0;
+    if (cache != null) {
+      hits = cache.getHitCount();
+      cache.save(request.m_baseDir);
+    }
+    results.finish(hits);
+  }
+
+  /**
+   * Start the daemon
+   * @param args see the class description
+   * @throws Exception if the daemon cannot start
+   */
+  public static void main(String[] args) throws Exception {
+    File stateFile = new File(args[0]);
+    String jsHintJS = args[1];
+    boolean precompiled = Boolean.parseBoolean(args[2]);
+    LintEngineFactory engineFactory = LintEngines.get(args[3]);
+    int threads = Integer.parseInt(args[4]);
+    int idleTimeout = Integer.parseInt(args[5]) * 1000;
+    EngineRecycling recycling = new EngineRecycling(Integer.parseInt(args[6]), Integer.parseInt(args[7]));
+
+    JsScript jsHint = JsScript.load(JsHintDaemon.class.getClassLoader(), jsHintJS, precompiled);
+    if (jsHint == null) {
+      System.err.println("cannot find " + jsHintJS + " on the classpath");
+      System.exit(1);
+    }
+    if (engineFactory == null) {
+      System.err.println("JS engine " + args[3] + " is not available");
+      System.exit(1);
+    }
+
+    JsHintRunner runner = new JsHintRunner(jsHint, engineFactory, threads, recycling, new SystemStreamLog());
+    ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName(null));
+    JsHintDaemon daemon = new JsHintDaemon(stateFile, runner, server);
+    try {
+      runner.warmUp();
+      daemon.writeState();
+      daemon.serve(idleTimeout);
+    } finally {
+      daemon.removeState();
+      IOUtils.closeQuietly(server);
+      runner.shutdown();
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import com.vecna.maven.jshint.cache.LintCache;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.mojo.ErrorCompactor;
+import com.vecna.maven.jshint.mojo.JsHintRunner;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * A JVM forked by {@link ForkedLinter} to lint a shard of the source files. Reads a single lint request from its
+ * standard input and writes the results to its standard output, in the encoding described in {@link DaemonProtocol}
+ * (without the status). Exits as soon as its standard input is closed, i.e. when the build JVM goes away.
+ * <p>
+ * Arguments: JSHint script path, whether to use the precompiled JSHint, JS engine backend, scope snapshot directory
+ * (or an empty string), number of threads, file to save the lint cache entries of the shard to (or an empty string),
+ * number of files after which an engine is recycled, share of the heap in percent after which an engine is recycled
+ * (see {@link EngineRecycling}).
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public final class LintFork {
+  private LintFork() {
+  }
+
+  /**
+   * Exit once the build JVM closes the standard input
+   */
+  private static void exitWithParent(final InputStream in) {
+    Thread watchdog = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (in.read() != -1) {
+            continue;
+          }
+        } catch (IOException e) {
+          // the parent is gone either way
+        }
+        System.exit(1);
+      }
+    }, "jshint-fork-watchdog");
+    watchdog.setDaemon(true);
+    watchdog.start();
+  }
+
+  /**
+   * Lint a shard
+   * @param args see the class description
+   * @throws Exception if the fork cannot start
+   */
+  public static void main(String[] args) throws Exception {
+    String jsHintJS = args[0];
+    boolean precompiled = Boolean.parseBoolean(args[1]);
+    LintEngineFactory engineFactory = LintEngines.get(args[2], args[3].isEmpty() ? null : new File(args[3]));
+    int threads = Integer.parseInt(args[4]);
+    File cachePart = args[5].isEmpty() ? null : new File(args[5]);
+    EngineRecycling recycling = new EngineRecycling(Integer.parseInt(args[6]), Integer.parseInt(args[7]));
+
+    // anything printed along the way must not end up in the results
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+    System.setOut(System.err);
+
+    JsScript jsHint = JsScript.load(LintFork.class.getClassLoader(), jsHintJS, precompiled);
+    if (jsHint == null) {
+      System.err.println("cannot find " + jsHintJS + " on the classpath");
+      System.exit(1);
+    }
+    if (engineFactory == null) {
+      System.err.println("JS engine " + args[2] + " is not available");
+      System.exit(1);
+    }
+
+    DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+    LintRequest request = LintRequest.read(in);
+    exitWithParent(in);
+
+    ErrorCompactor compactor = new ErrorCompactor(request.m_maxEvidenceLength);
+    LintCache cache = request.m_cacheFile == null || cachePart == null ? null
+        : LintCache.load(request.m_cacheFile, jsHint, compactor);
+    // the log ends up in the build output along with the rest of the standard error
+    JsHintRunner runner = new JsHintRunner(jsHint, engineFactory, threads, recycling, new SystemStreamLog());
+    ResultWriter results = new ResultWriter(out);
+    try {
+      runner.lint(request.m_baseDir, request.m_sourceFiles, null, request.m_options, request.m_charset, cache, null,
+                  request.m_minifiedPolicy, request.m_minifiedTimeout, request.m_fileTimeout, request.m_batchSize,
+                  compactor, results);
+    } catch (MojoExecutionException e) {
+      results.abort(e.getMessage());
+      System.exit(1);
+    }
+
+    int hits = 0;
+    if (cache != null) {
+      hits = cache.getHitCount();
+      cache.saveLinted(cachePart);
+    }
+    results.finish(hits);
+    System.exit(0);
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.mojo.MinifiedFilePolicy;
+
+/**
+ * The parameters of a lint request to a {@link JsHintDaemon} or a {@link LintFork}, in the encoding described in
+ * {@link DaemonProtocol}.
+ * @author ogolberg@vecna.com
+ */
+final class LintRequest {
+  final Charset m_charset;
+  final File m_cacheFile;
+  final MinifiedFilePolicy m_minifiedPolicy;
+  final long m_minifiedTimeout;
+  final long m_fileTimeout;
+  final int m_batchSize;
+  final int m_maxEvidenceLength;
+  final File m_baseDir;
+  final String[] m_sourceFiles;
+  final JsHintOptions[] m_options;
+
+  LintRequest(Charset charset, File cacheFile, MinifiedFilePolicy minifiedPolicy, long minifiedTimeout,
+              long fileTimeout, int batchSize, int maxEvidenceLength, File baseDir, String[] sourceFiles, JsHintOptions[] options) {
+    m_charset = charset;
+    m_cacheFile = cacheFile;
+    m_minifiedPolicy = minifiedPolicy;
+    m_minifiedTimeout = minifiedTimeout;
+    m_fileTimeout = fileTimeout;
+    m_batchSize = batchSize;
+    m_maxEvidenceLength = maxEvidenceLength;
+    m_baseDir = baseDir;
+    m_sourceFiles = sourceFiles;
+    m_options = options;
+  }
+
+  /**
+   * Write the request
+   * @param out output
+   * @throws IOException if the request cannot be written
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeUTF(m_charset.name());
+    out.writeUTF(m_cacheFile == null ? "" : m_cacheFile.getAbsolutePath());
+    out.writeUTF(m_minifiedPolicy.name());
+    out.writeLong(m_minifiedTimeout);
+    out.writeLong(m_fileTimeout);
+    out.writeInt(m_batchSize);
+    out.writeInt(m_maxEvidenceLength);
+    out.writeUTF(m_baseDir.getAbsolutePath());
+    // each distinct set of options is sent once and referred to by index
+    Map<JsHintOptions, Integer> optionIndexes = new LinkedHashMap<JsHintOptions, Integer>();
+    for (JsHintOptions fileOptions : m_options) {
+      if (!optionIndexes.containsKey(fileOptions)) {
+        optionIndexes.put(fileOptions, optionIndexes.size());
+      }
+    }
+    out.writeInt(optionIndexes.size());
+    for (JsHintOptions distinct : optionIndexes.keySet()) {
+      DaemonProtocol.writeString(out, distinct.getOptions());
+      DaemonProtocol.writeString(out, distinct.getGlobals());
+    }
+    out.writeInt(m_sourceFiles.length);
+    for (int i = 0; i < m_sourceFiles.length; i++) {
+      out.writeUTF(m_sourceFiles[i]);
+      out.writeInt(optionIndexes.get(m_options[i]));
+    }
+  }
+
+  /**
+   * Read a request written with {@link #write(DataOutputStream)}
+   * @param in input
+   * @return the request
+   * @throws IOException if the request cannot be read
+   */
+  static LintRequest read(DataInputStream in) throws IOException {
+    Charset charset = Charset.forName(in.readUTF());
+    String cachePath = in.readUTF();
+    MinifiedFilePolicy minifiedPolicy = MinifiedFilePolicy.valueOf(in.readUTF());
+    long minifiedTimeout = in.readLong();
+    long fileTimeout = in.readLong();
+    int batchSize = in.readInt();
+    int maxEvidenceLength = in.readInt();
+    File baseDir = new File(in.readUTF());
+    JsHintOptions[] distinctOptions = new JsHintOptions[in.readInt()];
+    for (int i = 0; i < distinctOptions.length; i++) {
+      distinctOptions[i] = new JsHintOptions(DaemonProtocol.readString(in), DaemonProtocol.readString(in));
+    }
+    String[] sourceFiles = new String[in.readInt()];
+    JsHintOptions[] options = new JsHintOptions[sourceFiles.length];
+    for (int i = 0; i < sourceFiles.length; i++) {
+      sourceFiles[i] = in.readUTF();
+      options[i] = distinctOptions[in.readInt()];
+    }
+    return new LintRequest(charset, cachePath.isEmpty() ? null : new File(cachePath), minifiedPolicy,
+                           minifiedTimeout, fileTimeout, batchSize, maxEvidenceLength, baseDir, sourceFiles, options);
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.daemon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.LintListener;
+
+/**
+ * Sends the results of a lint request, in the encoding described in {@link DaemonProtocol}.
+ * @author ogolberg@vecna.com
+ */
+class ResultWriter implements LintListener {
+  private final DataOutputStream m_out;
+
+  /**
+   * @param out output
+   */
+  ResultWriter(DataOutputStream out) {
+    m_out = out;
+  }
+
+  @Override
+  public void fileLinted(String srcFile, List<JsHintError> errors) throws MojoExecutionException {
+    try {
+      m_out.writeInt(errors.size());
+      for (JsHintError error : errors) {
+        error.write(m_out);
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to send the results of " + srcFile, e);
+    }
+  }
+
+  @Override
+  public void fileSkipped(String srcFile, String reason) throws MojoExecutionException {
+    send(srcFile, DaemonProtocol.SKIPPED, reason);
+  }
+
+  @Override
+  public void fileTimedOut(String srcFile, String message) throws MojoExecutionException {
+    send(srcFile, DaemonProtocol.TIMED_OUT, message);
+  }
+
+  @Override
+  public void fileFlagged(String srcFile, String warning) throws MojoExecutionException {
+    send(srcFile, DaemonProtocol.FLAGGED, warning);
+  }
+
+  private void send(String srcFile, int marker, String message) throws MojoExecutionException {
+    try {
+      m_out.writeInt(marker);
+      DaemonProtocol.writeString(m_out, message);
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to send the results of " + srcFile, e);
+    }
+  }
+
+  /**
+   * End the results early
+   * @param message why linting stopped
+   * @throws IOException if the message cannot be sent
+   */
+  void abort(String message) throws IOException {
+    m_out.writeInt(DaemonProtocol.ABORTED);
+    DaemonProtocol.writeString(m_out, message);
+    m_out.flush();
+  }
+
+  /**
+   * End the results
+   * @param hits number of cache hits
+   * @throws IOException if the results cannot be sent
+   */
+  void finish(int hits) throws IOException {
+    m_out.writeInt(hits);
+    m_out.flush();
+  }
+}
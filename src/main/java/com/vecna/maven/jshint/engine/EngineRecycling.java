@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Decides when a long-lived engine should be closed and replaced with a freshly bootstrapped one, so that whatever
+ * JSHint and the JS engine accumulate over many files is released. An engine is recycled after it has linted a number
+ * of files, or when the heap retained after the last garbage collection passes a share of the maximum heap.
+ * @author ogolberg@vecna.com
+ */
+public final class EngineRecycling {
+  /**
+   * Never recycle engines.
+   */
+  public static final EngineRecycling NEVER = new EngineRecycling(0, 0);
+
+  /**
+   * Minimum number of files an engine lints before it can be recycled for the heap, so that a heap filled by
+   * something else doesn't have the engines bootstrapped over and over.
+   */
+  private static final int MIN_FILES_FOR_HEAP = 100;
+
+  private final int m_maxFiles;
+  private final int m_maxHeapPercent;
+
+  /**
+   * @param maxFiles number of files after which an engine is recycled (0 for no limit)
+   * @param maxHeapPercent share of the maximum heap, in percent, that the heap retained after garbage collection may
+   *        take before an engine is recycled (0 for no limit)
+   */
+  public EngineRecycling(int maxFiles, int maxHeapPercent) {
+    m_maxFiles = maxFiles;
+    m_maxHeapPercent = maxHeapPercent;
+  }
+
+  /**
+   * @return number of files after which an engine is recycled (0 for no limit)
+   */
+  public int getMaxFiles() {
+    return m_maxFiles;
+  }
+
+  /**
+   * @return share of the maximum heap, in percent, after which an engine is recycled (0 for no limit)
+   */
+  public int getMaxHeapPercent() {
+    return m_maxHeapPercent;
+  }
+
+  /**
+   * @return the heap used right after the last garbage collection of each heap pool
+   */
+  private static long getRetainedHeap() {
+    long retained = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        MemoryUsage usage = pool.getCollectionUsage();
+        if (usage != null) {
+          retained += usage.getUsed();
+        }
+      }
+    }
+    return retained;
+  }
+
+  /**
+   * @param filesLinted number of files an engine has linted since it was bootstrapped
+   * @return why the engine should be recycled, or <code>null</code> if it should be kept
+   */
+  public String check(int filesLinted) {
+    if (m_maxFiles > 0 && filesLinted >= m_maxFiles) {
+      return "linted " + filesLinted + " files";
+    }
+    if (m_maxHeapPercent > 0 && filesLinted >= MIN_FILES_FOR_HEAP) {
+      long maxHeap = Runtime.getRuntime().maxMemory();
+      long retained = getRetainedHeap();
+      if (maxHeap != Long.MAX_VALUE && retained * 100 > maxHeap * m_maxHeapPercent) {
+        return "heap retained after garbage collection is " + retained * 100 / maxHeap + "% of the maximum";
+      }
+    }
+    return null;
+  }
+}
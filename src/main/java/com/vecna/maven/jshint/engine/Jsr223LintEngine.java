@@ -0,0 +1,268 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Runs JSHint on the JavaScript engine of the JVM (e.g. Nashorn), through <code>javax.script</code>.
+ * Engines hand JS objects over to Java in different ways, so only strings cross the boundary: the options are passed
+ * as JSON and the errors come back packed in a single string.
+ * <p>
+ * <code>javax.script</code> has no way to interrupt a script, so a lint with a timeout runs on a worker thread of the
+ * engine, and is abandoned if it runs past the timeout. The abandoned call keeps the worker busy until JSHint is done
+ * with the file, and leaves the engine unusable: the caller is expected to close it and bootstrap a new one.
+ * @author ogolberg@vecna.com
+ */
+public final class Jsr223LintEngine implements LintEngine {
+  private static final String LINT_FUNCTION = "__jshintMavenLint";
+
+  private static final char NULL = '-';
+
+  /**
+   * Defines the lint function, which parses each distinct set of options once and returns the line, column, reason
+   * and evidence of each error, each one prefixed with its length and a colon (or <code>-</code> for
+   * <code>null</code>), so that they can hold any character. JSHint leaves a <code>null</code> after the error that
+   * made it give up.
+   */
+  private static final String LINT_JS =
+      "var " + LINT_FUNCTION + " = (function () {\n"
+      + "  var parsed = {};\n"
+      + "  function parse(json) {\n"
+      + "    if (json == null) {\n"
+      + "      return null;\n"
+      + "    }\n"
+      + "    if (!parsed.hasOwnProperty(json)) {\n"
+      + "      parsed[json] = JSON.parse(json);\n"
+      + "    }\n"
+      + "    return parsed[json];\n"
+      + "  }\n"
+      + "  function str(value) {\n"
+      + "    if (value == null) {\n"
+      + "      return '" + NULL + "';\n"
+      + "    }\n"
+      + "    value = String(value);\n"
+      + "    return value.length + ':' + value;\n"
+      + "  }\n"
+      + "  return function (source, options, globals) {\n"
+      + "    JSHINT(String(source), parse(options), parse(globals));\n"
+      + "    var packed = [];\n"
+      + "    for (var i = 0; i < JSHINT.errors.length; i++) {\n"
+      + "      var error = JSHINT.errors[i];\n"
+      + "      if (error) {\n"
+      + "        packed.push(str(error.line), str(error.character), str(error.reason), str(error.evidence));\n"
+      + "      }\n"
+      + "    }\n"
+      + "    return packed.join('');\n"
+      + "  };\n"
+      + "})();\n";
+
+  /**
+   * @param classLoader class loader to look up the JavaScript engines in
+   * @return a factory of engines on the first JavaScript engine found, or <code>null</code> if there is none
+   */
+  static LintEngineFactory factory(ClassLoader classLoader) {
+    ScriptEngine probe = new ScriptEngineManager(classLoader).getEngineByName("javascript");
+    if (!(probe instanceof Invocable)) {
+      return null;
+    }
+    final ScriptEngineFactory scriptEngines = probe.getFactory();
+
+    return new LintEngineFactory() {
+      @Override
+      public String getName() {
+        return LintEngines.JSR223;
+      }
+
+      @Override
+      public String getDescription() {
+        return scriptEngines.getEngineName() + " " + scriptEngines.getEngineVersion();
+      }
+
+      @Override
+      public LintEngine bootstrap(JsScript jsHint) {
+        ScriptEngine engine = scriptEngines.getScriptEngine();
+        try {
+          // a fake browser environment
+          engine.eval("var window = {};");
+          engine.put(ScriptEngine.FILENAME, jsHint.getName());
+          engine.eval(jsHint.getSource());
+          engine.put(ScriptEngine.FILENAME, null);
+          engine.eval(LINT_JS);
+        } catch (ScriptException e) {
+          throw new IllegalStateException("failed to bootstrap JSHint on " + getDescription(), e);
+        }
+        return new Jsr223LintEngine((Invocable) engine);
+      }
+    };
+  }
+
+  private final Invocable m_engine;
+  private ExecutorService m_worker;
+  private boolean m_abandoned;
+
+  private Jsr223LintEngine(Invocable engine) {
+    m_engine = engine;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<JsHintError> lint(String srcFile, String source, JsHintOptions options) {
+    checkUsable();
+    return invoke(srcFile, source, options);
+  }
+
+  private void checkUsable() {
+    if (m_abandoned) {
+      throw new IllegalStateException("JSHint may still be running in this engine after a timeout");
+    }
+  }
+
+  private List<JsHintError> invoke(String srcFile, String source, JsHintOptions options) {
+    Object packed;
+    try {
+      packed = m_engine.invokeFunction(LINT_FUNCTION, source, options.getOptions(), options.getGlobals());
+    } catch (ScriptException | NoSuchMethodException e) {
+      throw new IllegalStateException("JSHint failed on " + srcFile, e);
+    }
+    return unpack(srcFile, packed.toString());
+  }
+
+  /**
+   * Lints the files one by one: engines disagree on how Java arrays are handed to scripts, and the options are already
+   * parsed once per engine, so there is little overhead to save.
+   */
+  @Override
+  public List<List<JsHintError>> lint(String[] srcFiles, String[] sources, JsHintOptions options) {
+    List<List<JsHintError>> errors = new ArrayList<List<JsHintError>>(srcFiles.length);
+    for (int i = 0; i < srcFiles.length; i++) {
+      errors.add(lint(srcFiles[i], sources[i], options));
+    }
+    return errors;
+  }
+
+  /**
+   * Runs JSHint on the worker thread of the engine and waits for it up to the timeout. After a timeout, JSHint is left
+   * to finish the file on the worker thread and the engine refuses to lint any more files.
+   */
+  @Override
+  public List<JsHintError> lint(final String srcFile, final String source, final JsHintOptions options,
+                                long timeout) throws TimeoutException {
+    checkUsable();
+    if (m_worker == null) {
+      // named after the thread of the engine, which is not a format
+      String name = Thread.currentThread().getName().replace("%", "%%") + "-" + LintEngines.JSR223;
+      m_worker = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(name).setDaemon(true)
+                                                   .build());
+    }
+    Future<List<JsHintError>> lint = m_worker.submit(new Callable<List<JsHintError>>() {
+      @Override
+      public List<JsHintError> call() {
+        return invoke(srcFile, source, options);
+      }
+    });
+    try {
+      return lint.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      m_abandoned = true;
+      throw new TimeoutException("gave up after " + timeout + " milliseconds");
+    } catch (InterruptedException e) {
+      m_abandoned = true;
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while linting " + srcFile, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("JSHint failed on " + srcFile, e.getCause());
+    }
+  }
+
+  /**
+   * Stops the worker thread, if any, once it is done with the file it may still be linting. Otherwise there is
+   * nothing to release: the script engine is not bound to the thread and goes away with the last reference to it.
+   */
+  @Override
+  public void close() {
+    if (m_worker != null) {
+      m_worker.shutdown();
+    }
+  }
+
+  /**
+   * Convert the errors packed by the lint function
+   * @param srcFile name of the source file (used in the errors)
+   * @param packed the packed errors
+   * @return the violations
+   */
+  static List<JsHintError> unpack(String srcFile, String packed) {
+    List<JsHintError> errors = new ArrayList<JsHintError>();
+    ParsePosition position = new ParsePosition(0);
+    while (position.getIndex() < packed.length()) {
+      int line = Integer.parseInt(field(packed, position));
+      int character = Integer.parseInt(field(packed, position));
+      String reason = field(packed, position);
+      String evidence = field(packed, position);
+      // handling the built-in JsHint error limit
+      if (reason != null && reason.startsWith("Too many errors")) {
+        break;
+      }
+      errors.add(new JsHintError(srcFile, line, character, evidence, reason));
+    }
+    return errors;
+  }
+
+  /**
+   * Read the next field packed by the lint function
+   * @param packed the packed errors
+   * @param position where the field starts, moved to where the next one starts
+   * @return the field
+   */
+  private static String field(String packed, ParsePosition position) {
+    int start = position.getIndex();
+    if (packed.charAt(start) == NULL) {
+      position.setIndex(start + 1);
+      return null;
+    }
+    int colon = packed.indexOf(':', start);
+    int end = colon + 1 + Integer.parseInt(packed.substring(start, colon));
+    position.setIndex(end);
+    return packed.substring(colon + 1, end);
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+
+/**
+ * JSHint bootstrapped in a JS engine (see {@link LintEngineFactory}).
+ * An engine is bound to the thread that bootstrapped it and must only be used (and closed) from that thread.
+ * @author ogolberg@vecna.com
+ */
+public interface LintEngine extends Closeable {
+  /**
+   * Lint a single source file. Each distinct set of options is parsed once per engine.
+   * @param srcFile name of the source file (used in the errors)
+   * @param source contents of the source file
+   * @param options effective options of the source file
+   * @return the violations found in the file
+   */
+  List<JsHintError> lint(String srcFile, String source, JsHintOptions options);
+
+  /**
+   * Lint several source files that share the same options, in as few calls into the engine as possible.
+   * The results are the same as linting the files one by one.
+   * @param srcFiles names of the source files (used in the errors)
+   * @param sources contents of the source files
+   * @param options effective options of the source files
+   * @return the violations found in each file, in the same order as the files
+   */
+  List<List<JsHintError>> lint(String[] srcFiles, String[] sources, JsHintOptions options);
+
+  /**
+   * Lint a single source file, giving up if JSHint runs for longer than the timeout. JSHint may be left halfway
+   * through the file, so the engine should be closed after a timeout.
+   * @param srcFile name of the source file (used in the errors)
+   * @param source contents of the source file
+   * @param options effective options of the source file
+   * @param timeout timeout in milliseconds
+   * @return the violations found in the file
+   * @throws TimeoutException if JSHint runs past the timeout
+   */
+  List<JsHintError> lint(String srcFile, String source, JsHintOptions options, long timeout) throws TimeoutException;
+
+  /**
+   * Release the engine along with JSHint and the options parsed in it. The engine can't be used afterwards.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * A JS engine backend that JSHint can run on.
+ * @author ogolberg@vecna.com
+ */
+public interface LintEngineFactory {
+  /**
+   * @return name of the backend, as set in the <code>engine</code> parameter
+   */
+  String getName();
+
+  /**
+   * @return name and version of the underlying JS engine
+   */
+  String getDescription();
+
+  /**
+   * Bootstrap JSHint in a new engine, bound to the current thread.
+   * @param jsHint JSHint script
+   * @return the engine
+   */
+  LintEngine bootstrap(JsScript jsHint);
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.io.File;
+
+/**
+ * Looks up the JS engine backends by name.
+ * @author ogolberg@vecna.com
+ */
+public final class LintEngines {
+  /**
+   * The bundled Rhino, the default.
+   */
+  public static final String RHINO = "rhino";
+
+  /**
+   * The JavaScript engine of the JVM, through <code>javax.script</code>.
+   */
+  public static final String JSR223 = "jsr223";
+
+  private LintEngines() {
+  }
+
+  /**
+   * @param name name of a backend
+   * @return the backend, or <code>null</code> if it is not available on this JVM
+   * @throws IllegalArgumentException if there is no such backend
+   */
+  public static LintEngineFactory get(String name) {
+    return get(name, null);
+  }
+
+  /**
+   * @param name name of a backend
+   * @param snapshotDirectory directory with the scope snapshots of the backends that support them (may be
+   *        <code>null</code> to not use snapshots)
+   * @return the backend, or <code>null</code> if it is not available on this JVM
+   * @throws IllegalArgumentException if there is no such backend
+   */
+  public static LintEngineFactory get(String name, File snapshotDirectory) {
+    if (RHINO.equals(name)) {
+      return snapshotDirectory == null ? RhinoLintEngine.FACTORY : RhinoLintEngine.factory(snapshotDirectory);
+    } else if (JSR223.equals(name)) {
+      return Jsr223LintEngine.factory(LintEngines.class.getClassLoader());
+    } else {
+      throw new IllegalArgumentException("unknown JS engine: " + name);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.mozilla.javascript.Context;
+
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintLinter;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.rhino.JsEngine;
+import com.vecna.maven.jshint.rhino.JsScript;
+import com.vecna.maven.jshint.rhino.ScopeSnapshot;
+
+/**
+ * Runs JSHint on the bundled Rhino, from precompiled classes if possible (see {@link JsScript}).
+ * @author ogolberg@vecna.com
+ */
+public final class RhinoLintEngine implements LintEngine {
+  /**
+   * Bootstraps Rhino engines by executing JSHint.
+   */
+  public static final LintEngineFactory FACTORY = new Factory(null);
+
+  /**
+   * Bootstraps Rhino engines, restoring them from scope snapshots if possible (see {@link ScopeSnapshot}).
+   */
+  private static class Factory implements LintEngineFactory {
+    private final File m_snapshotDirectory;
+
+    Factory(File snapshotDirectory) {
+      m_snapshotDirectory = snapshotDirectory;
+    }
+
+    @Override
+    public String getName() {
+      return LintEngines.RHINO;
+    }
+
+    @Override
+    public String getDescription() {
+      Context context = Context.enter();
+      try {
+        return context.getImplementationVersion();
+      } finally {
+        Context.exit();
+      }
+    }
+
+    @Override
+    public LintEngine bootstrap(JsScript jsHint) {
+      if (m_snapshotDirectory == null) {
+        return new RhinoLintEngine(new JsEngine().browserEnv().eval(jsHint));
+      } else {
+        return new RhinoLintEngine(ScopeSnapshot.bootstrap(jsHint, m_snapshotDirectory));
+      }
+    }
+  }
+
+  /**
+   * @param snapshotDirectory directory with the scope snapshots
+   * @return a factory of engines that are restored from scope snapshots if possible
+   */
+  public static LintEngineFactory factory(File snapshotDirectory) {
+    return new Factory(snapshotDirectory);
+  }
+
+  private final JsEngine m_engine;
+  // files in different directories may have different options, but usually share a few sets of them
+  private final Map<JsHintOptions, JsHintLinter> m_linters = new HashMap<JsHintOptions, JsHintLinter>();
+
+  private RhinoLintEngine(JsEngine engine) {
+    m_engine = engine;
+  }
+
+  private JsHintLinter getLinter(JsHintOptions options) {
+    JsHintLinter linter = m_linters.get(options);
+    if (linter == null) {
+      linter = new JsHintLinter(m_engine, options.parseOptions(m_engine), options.parseGlobals(m_engine));
+      m_linters.put(options, linter);
+    }
+    return linter;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<JsHintError> lint(String srcFile, String source, JsHintOptions options) {
+    return getLinter(options).lint(srcFile, source);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<List<JsHintError>> lint(String[] srcFiles, String[] sources, JsHintOptions options) {
+    return getLinter(options).lint(srcFiles, sources);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<JsHintError> lint(String srcFile, String source, JsHintOptions options, long timeout)
+      throws TimeoutException {
+    return getLinter(options).lint(srcFile, source, timeout);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() {
+    m_linters.clear();
+    m_engine.close();
+  }
+}
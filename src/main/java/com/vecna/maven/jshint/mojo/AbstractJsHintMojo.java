@@ -0,0 +1,568 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.StringUtils;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.RhinoException;
+
+import com.google.common.base.Charsets;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.report.JsHintCheckstyleReporter;
+import com.vecna.maven.jshint.report.JsHintReporter;
+import com.vecna.maven.jshint.rhino.JsEngine;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Parameters and helpers shared by the JSHint goals: locating the source files, resolving the options, loading JSHint
+ * and writing the report.
+ * @author ogolberg@vecna.com
+ */
+public abstract class AbstractJsHintMojo extends AbstractMojo {
+  /**
+   * Location of the JSHint source on the classpath. Only needs to be set if a custom version of JSHint is needed.
+   */
+  @Parameter(defaultValue = JsScript.BUNDLED_JSHINT)
+  protected String jsHintJS;
+
+  /**
+   * Whether to run the bundled JSHint from classes precompiled when the plugin was built, which is faster than
+   * interpreting it. Custom JSHint scripts are always interpreted, as is the bundled script if it could not be
+   * precompiled.
+   */
+  @Parameter(defaultValue = "true")
+  protected boolean precompiled;
+
+  /**
+   * JS engine to run JSHint on: <code>rhino</code> for the bundled Rhino, or <code>jsr223</code> for the JavaScript
+   * engine of the JVM (e.g. Nashorn) through <code>javax.script</code>. Falls back to Rhino if the JVM has no
+   * JavaScript engine. The <code>jsr223</code> engine can't interrupt JSHint, so when a file times out it leaves
+   * JSHint to finish the file on a thread of its own and bootstraps a new engine.
+   */
+  @Parameter(defaultValue = LintEngines.RHINO)
+  private String engine;
+
+  /**
+   * Whether to save a snapshot of the Rhino scope once JSHint has been bootstrapped in it, and to restore later builds'
+   * first engine from the snapshot instead of parsing and executing JSHint again. Only applies when JSHint runs in
+   * the Rhino interpreter.
+   */
+  @Parameter(defaultValue = "true")
+  private boolean scopeSnapshot;
+
+  /**
+   * Directory with the Rhino scope snapshots, one per JSHint script.
+   */
+  @Parameter(defaultValue = "${user.home}/.m2/jshint-snapshots")
+  private File snapshotDirectory;
+
+  /**
+   * Directory with the javascript files to be checked.
+   */
+  @Parameter(defaultValue = "${basedir}/src/main/javascript")
+  protected File srcDirectory;
+
+  /**
+   * Encoding of the javascript files.
+   */
+  @Parameter(defaultValue = "${project.build.sourceEncoding}")
+  private String encoding;
+
+  /**
+   * List of file name patterns to include.
+   */
+  @Parameter
+  protected String[] includes;
+
+  /**
+   * List of file name patterns to exclude.
+   */
+  @Parameter
+  protected String[] excludes;
+
+  /**
+   * Whether to scan the subdirectories of the source directory in parallel.
+   */
+  @Parameter(defaultValue = "false")
+  protected boolean parallelScan;
+
+  /**
+   * Location of the JSHint options file on the classpath or filesystem.
+   */
+  @Parameter(defaultValue = "jshintrc")
+  private String optionsFile;
+
+  /**
+   * Name of the per-directory options files, e.g. <code>.jshintrc</code>. If set, each source file is linted with the
+   * nearest options file of that name in its directory or a parent directory up to <code>srcDirectory</code>, instead
+   * of <code>optionsFile</code>; files without one use <code>optionsFile</code>. The <code>options</code> and
+   * <code>globals</code> parameters take priority either way.
+   */
+  @Parameter
+  private String directoryOptionsFile;
+
+  /**
+   * JSHint options (these take priority over the options file).
+   */
+  @Parameter
+  private Map<String, String> options;
+
+  /**
+   * Allowed globals (these take priority over the options file).
+   */
+  @Parameter
+  private Map<String, String> globals;
+
+  /**
+   * What to do with source files that look minified or generated (very long lines, little whitespace):
+   * <code>lint</code> them like any other file, <code>warn</code> about them, <code>skip</code> them, or lint them
+   * with a <code>timeout</code> and skip them if JSHint takes longer than <code>minifiedTimeout</code>.
+   * Skipped files are listed in the log and in the report.
+   */
+  @Parameter(defaultValue = "warn")
+  private String minifiedFiles;
+
+  /**
+   * Number of milliseconds JSHint may spend on a file that looks minified when <code>minifiedFiles</code> is
+   * <code>timeout</code>.
+   */
+  @Parameter(defaultValue = "5000")
+  protected long minifiedTimeout;
+
+  /**
+   * Number of milliseconds JSHint may spend on any single file (0 for no limit). JSHint is aborted on a file that
+   * takes longer, the file is listed in the log and as a warning in the report, and the next file is linted with a
+   * freshly bootstrapped JSHint. Files that look minified are subject to <code>minifiedTimeout</code> instead when
+   * <code>minifiedFiles</code> is <code>timeout</code>. Files are linted one by one rather than in batches when this is
+   * set.
+   */
+  @Parameter(defaultValue = "0")
+  protected long fileTimeout;
+
+  /**
+   * Maximum number of characters of the offending source line to keep with each violation (0 for no limit).
+   * Longer evidence, typically a whole line of a minified file, is cut off in the log and in the lint cache.
+   */
+  @Parameter(defaultValue = "200")
+  protected int maxEvidenceLength;
+
+  /**
+   * Maximum number of small source files to lint in a single call into the JS engine, which saves the overhead of
+   * calling JSHint on many tiny files. Batches are also capped by their total size, so larger files are linted in
+   * smaller batches or on their own. Set to 1 to lint every file on its own.
+   */
+  @Parameter(defaultValue = "32")
+  protected int batchSize;
+
+  /**
+   * Number of files a JSHint engine lints before it is closed and replaced with a freshly bootstrapped one (0 to
+   * keep the engines for the whole run). Recycling releases whatever JSHint and the JS engine accumulate, which
+   * matters in long runs of the watch goal, the daemon and very large source trees.
+   */
+  @Parameter(defaultValue = "5000")
+  private int engineRecycleFiles;
+
+  /**
+   * Share of the maximum heap, in percent, that the heap retained after garbage collection may take before the JSHint
+   * engines are closed and replaced with freshly bootstrapped ones (0 for no limit). An engine is recycled for the
+   * heap at most once every 100 files.
+   */
+  @Parameter(defaultValue = "80")
+  private int engineRecycleHeap;
+
+  /**
+   * Whether to skip execution.
+   */
+  @Parameter
+  protected boolean skip;
+
+  /**
+   * Location of the violation report.
+   */
+  @Parameter(defaultValue = "${project.build.directory}/jshint.xml")
+  protected File reportOutput;
+
+  protected final JsHintReporter reporter = new JsHintCheckstyleReporter();
+
+  /**
+   * Open a classpath resource for reading
+   * @param path the path to the resource
+   * @return an {@link InputStream} or <code>null</code> if the resource is not found
+   */
+  private InputStream openClasspathResource(String path) {
+    return Thread.currentThread().getContextClassLoader().getResourceAsStream(path);
+  }
+
+  /**
+   * Open a file or classpath resource for reading
+   * @param path the path (first looked up on the file system, then on the classpath)
+   * @return an {@link InputStream} or <code>null</code> if the resource is not found
+   */
+  private InputStream openFileOrClasspathResource(String path) {
+    try {
+      return new FileInputStream(path);
+    } catch (FileNotFoundException e) {
+      return openClasspathResource(path);
+    }
+  }
+
+  /**
+   * Read the JSON options file specified in the configuration
+   * @return the contents of the options file or <code>null</code> if the options file doesn't exist
+   * @throws MojoExecutionException if an error occurred while reading the file
+   */
+  private String readOptionsFile() throws MojoExecutionException {
+    if (StringUtils.isNotEmpty(optionsFile)) {
+      InputStream optionsSrc = openFileOrClasspathResource(optionsFile);
+      if (optionsSrc != null) {
+        try {
+          return IOUtils.toString(optionsSrc);
+        } catch (IOException e) {
+          throw new MojoExecutionException("failed to read " + optionsFile, e);
+        } finally {
+          IOUtils.closeQuietly(optionsSrc);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parse JSHint options read from the options file
+   * @param engine JS engine
+   * @param json contents of the options file (may be <code>null</code>)
+   * @param path path of the options file
+   * @return JS object with the options or an empty object if there is no options file
+   * @throws MojoExecutionException if an error occurred while parsing the file
+   */
+  private NativeObject parseOptions(JsEngine engine, String json, String path) throws MojoExecutionException {
+    if (json != null) {
+      try {
+        return engine.parseJSON(json);
+      } catch (RhinoException e) {
+        throw new MojoExecutionException("failed to parse " + path, e);
+      }
+    }
+
+    return new NativeObject();
+  }
+
+  /**
+   * Extract (and remove) the globals parameter from jshintrc options
+   */
+  private NativeObject extractGlobals(NativeObject optionsFromFile, String path) throws MojoExecutionException {
+    Object globalsFromFile = optionsFromFile.remove("globals");
+    if (globalsFromFile != null && !(globalsFromFile instanceof NativeObject)) {
+      throw new MojoExecutionException("bad globals definition in " + path);
+    } else {
+      return (NativeObject) globalsFromFile;
+    }
+  }
+
+  /**
+   * Apply the globals from the plugin configuration to the globals extracted from the options file
+   */
+  private NativeObject addGlobals(NativeObject globalsFromFile) {
+    if (globals != null) {
+      NativeObject merged = globalsFromFile == null ? new NativeObject() : globalsFromFile;
+      for (Entry<String, String> keyval : globals.entrySet()) {
+        merged.put(keyval.getKey(), merged, Boolean.valueOf(keyval.getValue()));
+      }
+      return merged;
+    } else {
+      return globalsFromFile;
+    }
+  }
+
+  /**
+   * @return true/false if the value is "true"/"false", integer if the value is numeric, or the string value itself
+   */
+  private Object toOptionValue(String value) {
+    if ("true".equals(value)) {
+      return true;
+    } else if ("false".equals(value)) {
+      return false;
+    } else if (StringUtils.isNumeric(value)) {
+      return Integer.valueOf(value);
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * combine the options from the plugin configuration with the options read from the file
+   */
+  private void addOptions(NativeObject optionsObject) {
+    if (options != null) {
+      for (Entry<String, String> keyval : options.entrySet()) {
+        optionsObject.put(keyval.getKey(), optionsObject, toOptionValue(keyval.getValue()));
+      }
+    }
+  }
+
+  /**
+   * Open the report file for writing
+   * @return output stream for the report
+   * @throws MojoExecutionException if the report file cannot be created
+   */
+  protected OutputStream openReport() throws MojoExecutionException {
+    try {
+      org.codehaus.plexus.util.FileUtils.forceMkdir(reportOutput.getParentFile());
+    } catch (IOException e) {
+      throw new MojoExecutionException("cannot create directory " + reportOutput.getParentFile());
+    }
+
+    try {
+      return new BufferedOutputStream(new FileOutputStream(reportOutput));
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to write the report", e);
+    }
+  }
+
+  /**
+   * @return the encoding of the source files
+   * @throws MojoExecutionException if the encoding is not supported
+   */
+  protected Charset getCharset() throws MojoExecutionException {
+    if (StringUtils.isEmpty(encoding)) {
+      getLog().warn("File encoding has not been set, using platform encoding " + Charset.defaultCharset().name()
+                    + ", i.e. build is platform dependent!");
+      return Charset.defaultCharset();
+    }
+    try {
+      return Charset.forName(encoding);
+    } catch (IllegalArgumentException e) {
+      throw new MojoExecutionException("unsupported encoding: " + encoding, e);
+    }
+  }
+
+  /**
+   * @return what to do with source files that look minified
+   * @throws MojoExecutionException if <code>minifiedFiles</code> is not a valid policy
+   */
+  protected MinifiedFilePolicy getMinifiedPolicy() throws MojoExecutionException {
+    try {
+      return MinifiedFilePolicy.valueOf(minifiedFiles.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new MojoExecutionException("bad minifiedFiles value: " + minifiedFiles);
+    }
+  }
+
+  /**
+   * @return when to replace the JSHint engines with freshly bootstrapped ones
+   * @throws MojoExecutionException if <code>engineRecycleFiles</code> or <code>engineRecycleHeap</code> is out of range
+   */
+  protected EngineRecycling getEngineRecycling() throws MojoExecutionException {
+    if (engineRecycleFiles < 0) {
+      throw new MojoExecutionException("bad engineRecycleFiles value: " + engineRecycleFiles);
+    }
+    if (engineRecycleHeap < 0 || engineRecycleHeap > 100) {
+      throw new MojoExecutionException("bad engineRecycleHeap value: " + engineRecycleHeap);
+    }
+    return new EngineRecycling(engineRecycleFiles, engineRecycleHeap);
+  }
+
+  /**
+   * @return the directory with the Rhino scope snapshots, or <code>null</code> if snapshots are disabled
+   */
+  protected File getSnapshotDirectory() {
+    return scopeSnapshot ? snapshotDirectory : null;
+  }
+
+  /**
+   * @return the JS engine backend to run JSHint on
+   * @throws MojoExecutionException if <code>engine</code> is not a valid engine
+   */
+  protected LintEngineFactory getEngineFactory() throws MojoExecutionException {
+    LintEngineFactory factory;
+    try {
+      factory = LintEngines.get(engine, getSnapshotDirectory());
+    } catch (IllegalArgumentException e) {
+      throw new MojoExecutionException("bad engine value: " + engine);
+    }
+    if (factory == null) {
+      getLog().warn("no JavaScript engine is available through javax.script, using Rhino");
+      factory = LintEngines.get(LintEngines.RHINO);
+    }
+    getLog().debug("running JSHint on " + factory.getDescription());
+    return factory;
+  }
+
+  /**
+   * Load the JSHint script. The compiled script is shared with other executions of the plugin.
+   * @return the compiled JSHint script
+   * @throws MojoExecutionException if the script doesn't exist or cannot be read
+   */
+  protected JsScript loadJsHint() throws MojoExecutionException {
+    JsScript script;
+    try {
+      script = JsScript.load(Thread.currentThread().getContextClassLoader(), jsHintJS, precompiled);
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to bootstrap JSHint", e);
+    }
+    if (script == null) {
+      throw new MojoExecutionException("cannot find " + jsHintJS + " on the classpath");
+    }
+    return script;
+  }
+
+  /**
+   * Combine an options file with the options and globals from the plugin configuration
+   * @param engine JS engine
+   * @param optionsJson contents of the options file (may be <code>null</code>)
+   * @param path path of the options file
+   * @return the effective options
+   * @throws MojoExecutionException if the options are invalid
+   */
+  private JsHintOptions resolveOptions(JsEngine engine, String optionsJson, String path)
+      throws MojoExecutionException {
+    NativeObject combinedOpts = parseOptions(engine, optionsJson, path);
+    NativeObject combinedGlobals = extractGlobals(combinedOpts, path);
+
+    addOptions(combinedOpts);
+    combinedGlobals = addGlobals(combinedGlobals);
+
+    return new JsHintOptions(engine.toJSON(combinedOpts), combinedGlobals == null ? null : engine.toJSON(combinedGlobals));
+  }
+
+  /**
+   * Resolves the effective options of source files. Each per-directory options file is read and merged with the
+   * plugin configuration once, and the result is cached for its directory and the directories that inherit it, so
+   * all the files in a directory share the same options. The resolver must be closed on the thread that created it.
+   */
+  protected class OptionsResolver implements Closeable {
+    // JSHint itself is not needed to merge the options
+    private final JsEngine m_engine = new JsEngine();
+    private final JsHintOptions m_defaults;
+    private final Map<File, JsHintOptions> m_directories = new HashMap<File, JsHintOptions>();
+    private final Map<JsHintOptions, JsHintOptions> m_distinct = new HashMap<JsHintOptions, JsHintOptions>();
+
+    /**
+     * Create a new resolver
+     * @throws MojoExecutionException if the options file cannot be read or the options are invalid
+     */
+    public OptionsResolver() throws MojoExecutionException {
+      try {
+        m_defaults = intern(resolveOptions(m_engine, readOptionsFile(), optionsFile));
+      } catch (MojoExecutionException | RuntimeException e) {
+        m_engine.close();
+        throw e;
+      }
+    }
+
+    /**
+     * @return the same instance for equal options, so that they are only parsed once per engine
+     */
+    private JsHintOptions intern(JsHintOptions options) {
+      JsHintOptions existing = m_distinct.get(options);
+      if (existing == null) {
+        m_distinct.put(options, options);
+        return options;
+      } else {
+        return existing;
+      }
+    }
+
+    /**
+     * @return the effective options of the source files in a directory
+     */
+    private JsHintOptions resolveDirectory(File dir) throws MojoExecutionException {
+      JsHintOptions resolved = m_directories.get(dir);
+      if (resolved == null) {
+        File file = new File(dir, directoryOptionsFile);
+        if (file.isFile()) {
+          String json;
+          try {
+            json = FileUtils.readFileToString(file, Charsets.UTF_8);
+          } catch (IOException e) {
+            throw new MojoExecutionException("failed to read " + file, e);
+          }
+          resolved = intern(resolveOptions(m_engine, json, file.getPath()));
+        } else if (dir.equals(srcDirectory) || dir.getParentFile() == null) {
+          resolved = m_defaults;
+        } else {
+          resolved = resolveDirectory(dir.getParentFile());
+        }
+        m_directories.put(dir, resolved);
+      }
+      return resolved;
+    }
+
+    /**
+     * @param srcFile source file (relative to the source directory)
+     * @return the effective options of the source file
+     * @throws MojoExecutionException if an options file cannot be read or the options are invalid
+     */
+    public JsHintOptions resolve(String srcFile) throws MojoExecutionException {
+      if (StringUtils.isEmpty(directoryOptionsFile)) {
+        return m_defaults;
+      }
+      return resolveDirectory(new File(srcDirectory, srcFile).getParentFile());
+    }
+
+    /**
+     * @param sourceFiles source files (relative to the source directory)
+     * @return the effective options of each source file
+     * @throws MojoExecutionException if an options file cannot be read or the options are invalid
+     */
+    public JsHintOptions[] resolve(String[] sourceFiles) throws MojoExecutionException {
+      JsHintOptions[] resolved = new JsHintOptions[sourceFiles.length];
+      for (int i = 0; i < sourceFiles.length; i++) {
+        resolved[i] = resolve(sourceFiles[i]);
+      }
+      return resolved;
+    }
+
+    /**
+     * @return the number of distinct sets of options resolved so far
+     */
+    public int getDistinctCount() {
+      return m_distinct.size();
+    }
+
+    /**
+     * Release the engine the options are merged in. The resolver can't resolve new directories afterwards.
+     */
+    @Override
+    public void close() {
+      m_engine.close();
+    }
+  }
+}
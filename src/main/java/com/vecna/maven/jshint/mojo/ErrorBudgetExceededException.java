@@ -0,0 +1,35 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Thrown by the {@link LintListener} of a fail-fast execution to stop linting once there are more violations than
+ * allowed.
+ * @author ogolberg@vecna.com
+ */
+class ErrorBudgetExceededException extends MojoExecutionException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * @param errorCount number of violations found so far
+   */
+  ErrorBudgetExceededException(int errorCount) {
+    super("JSHint violations: " + errorCount);
+  }
+}
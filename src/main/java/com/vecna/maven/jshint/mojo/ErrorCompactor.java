@@ -0,0 +1,84 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Shrinks the errors that are held on to until they are reported: equal reasons share a single string, no matter
+ * which file or thread they came from, and long evidence (e.g. a whole line of a minified file) is cut off.
+ * Safe to use from multiple threads.
+ * @author ogolberg@vecna.com
+ */
+public class ErrorCompactor {
+  private static final String ELLIPSIS = "...";
+
+  private final Interner<String> m_reasons = Interners.newStrongInterner();
+  private final int m_maxEvidenceLength;
+
+  /**
+   * Create a new compactor
+   * @param maxEvidenceLength maximum number of characters of evidence to keep (0 for no limit)
+   */
+  public ErrorCompactor(int maxEvidenceLength) {
+    m_maxEvidenceLength = maxEvidenceLength;
+  }
+
+  /**
+   * @return maximum number of characters of evidence to keep (0 for no limit)
+   */
+  public int getMaxEvidenceLength() {
+    return m_maxEvidenceLength;
+  }
+
+  /**
+   * @param evidence JS snippet that violated a rule (may be <code>null</code>)
+   * @return the evidence, cut off at the maximum length
+   */
+  String truncate(String evidence) {
+    if (evidence == null || m_maxEvidenceLength <= 0 || evidence.length() <= m_maxEvidenceLength) {
+      return evidence;
+    }
+    return evidence.substring(0, m_maxEvidenceLength) + ELLIPSIS;
+  }
+
+  /**
+   * @param error an error
+   * @return an equivalent error with a shared reason and truncated evidence
+   */
+  public JsHintError compact(JsHintError error) {
+    String reason = error.getReason() == null ? null : m_reasons.intern(error.getReason());
+    return new JsHintError(error.getSource(), error.getLine(), error.getCharacter(), truncate(error.getEvidence()),
+                           reason);
+  }
+
+  /**
+   * @param errors errors
+   * @return equivalent errors with shared reasons and truncated evidence
+   */
+  public List<JsHintError> compact(List<JsHintError> errors) {
+    List<JsHintError> compacted = new ArrayList<JsHintError>(errors.size());
+    for (JsHintError error : errors) {
+      compacted.add(compact(error));
+    }
+    return compacted;
+  }
+}
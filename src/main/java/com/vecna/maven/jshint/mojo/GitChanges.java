@@ -0,0 +1,146 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+
+/**
+ * Lists the files of a directory that have changed relative to a git ref, using the local <code>git</code> executable.
+ * @author ogolberg@vecna.com
+ */
+public class GitChanges {
+  private final String m_git;
+  private final File m_directory;
+
+  /**
+   * @param git git executable
+   * @param directory directory within a git working tree
+   */
+  public GitChanges(String git, File directory) {
+    m_git = git;
+    m_directory = directory;
+  }
+
+  /**
+   * Run git in the directory
+   * @param args git arguments
+   * @return the standard output
+   * @throws IOException if git cannot be started or fails
+   */
+  private String git(String... args) throws IOException {
+    List<String> command = new ArrayList<String>();
+    command.add(m_git);
+    for (String arg : args) {
+      command.add(arg);
+    }
+
+    Process process = new ProcessBuilder(command).directory(m_directory).start();
+    process.getOutputStream().close();
+    InputStream out = process.getInputStream();
+    final InputStream err = process.getErrorStream();
+    // read on its own thread: git blocks once it fills the pipe of whichever stream isn't being read
+    FutureTask<String> error = new FutureTask<String>(new Callable<String>() {
+      @Override
+      public String call() throws IOException {
+        return IOUtils.toString(err, Charsets.UTF_8);
+      }
+    });
+    Thread errorReader = new Thread(error, "git-stderr");
+    errorReader.setDaemon(true);
+    errorReader.start();
+    try {
+      String output = IOUtils.toString(out, Charsets.UTF_8);
+      int exitCode = process.waitFor();
+      if (exitCode != 0) {
+        throw new IOException("git " + args[0] + " failed with exit code " + exitCode + ": " + error.get().trim());
+      }
+      return output;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for git", e);
+    } catch (ExecutionException e) {
+      throw new IOException("git " + args[0] + " failed and its error output cannot be read", e.getCause());
+    } finally {
+      process.destroy();
+      IOUtils.closeQuietly(out);
+      IOUtils.closeQuietly(err);
+    }
+  }
+
+  /**
+   * @return whether the directory is inside a git working tree
+   */
+  public boolean isWorkTree() {
+    try {
+      return "true".equals(git("rev-parse", "--is-inside-work-tree").trim());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * List the files under the directory that were added, modified or renamed since the ref or are untracked.
+   * If the ref is a branch that the current branch was forked from, changes are listed since the fork point, so
+   * that changes made on the ref itself since then are not included.
+   * @param ref a commit, branch or tag
+   * @return paths of the changed files relative to the directory, with the platform separator
+   * @throws IOException if git fails
+   */
+  public List<String> list(String ref) throws IOException {
+    String base;
+    try {
+      base = git("merge-base", ref, "HEAD").trim();
+    } catch (IOException e) {
+      // no common history, compare with the ref itself
+      base = ref;
+    }
+
+    Set<String> changed = new LinkedHashSet<String>();
+    // NUL-separated paths are not quoted, whatever the path characters
+    Splitter paths = Splitter.on('\0').omitEmptyStrings();
+    for (String path : paths.split(git("diff", "--name-only", "-z", "--relative", "--diff-filter=ACMR", base,
+                                       "--", "."))) {
+      changed.add(path);
+    }
+    for (String path : paths.split(git("ls-files", "-z", "--others", "--exclude-standard", "--", "."))) {
+      changed.add(path);
+    }
+
+    List<String> files = new ArrayList<String>();
+    for (String path : changed) {
+      String file = path.replace('/', File.separatorChar);
+      if (new File(m_directory, file).isFile()) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+}
@@ -16,8 +16,14 @@
 
 package com.vecna.maven.jshint.mojo;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.mozilla.javascript.NativeObject;
 
+import com.google.common.base.Charsets;
+
 /**
  * A POJO representation of a JSHint error.
  * @author ogolberg@vecna.com
@@ -27,6 +33,27 @@ public class JsHintError {
     return seq == null ? null : seq.toString();
   }
 
+  // not using writeUTF() because the evidence of a minified file may exceed its 64k limit
+  private static void writeString(DataOutput out, String str) throws IOException {
+    if (str == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = str.getBytes(Charsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
   private final String m_source;
   private final int m_line;
   private final int m_character;
@@ -61,6 +88,34 @@ public class JsHintError {
   }
 
 
+  /**
+   * Read an error previously written with {@link #write(DataOutput)}.
+   * @param in input
+   * @return the error
+   * @throws IOException if the error cannot be read
+   */
+  public static JsHintError read(DataInput in) throws IOException {
+    String source = readString(in);
+    int line = in.readInt();
+    int character = in.readInt();
+    String evidence = readString(in);
+    String reason = readString(in);
+    return new JsHintError(source, line, character, evidence, reason);
+  }
+
+  /**
+   * Write this error in a compact binary form.
+   * @param out output
+   * @throws IOException if the error cannot be written
+   */
+  public void write(DataOutput out) throws IOException {
+    writeString(out, m_source);
+    out.writeInt(m_line);
+    out.writeInt(m_character);
+    writeString(out, m_evidence);
+    writeString(out, m_reason);
+  }
+
   /**
    * @return name of the source file
    */
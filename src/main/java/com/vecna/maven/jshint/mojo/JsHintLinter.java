@@ -0,0 +1,163 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.Scriptable;
+
+import com.vecna.maven.jshint.rhino.JsEngine;
+
+/**
+ * Runs JSHint over individual source files using a bootstrapped {@link JsEngine}.
+ * The underlying Rhino context is bound to the thread that created the engine, so a linter
+ * must only be used from that thread.
+ * @author ogolberg@vecna.com
+ */
+public class JsHintLinter {
+  /**
+   * Runs JSHint over an array of sources and collects the <code>JSHINT.errors</code> array of each one
+   * (JSHint starts a new array on every run).
+   */
+  private static final String BATCH_JS =
+      "(function (jshint, sources, options, globals) {\n"
+      + "  var errors = [];\n"
+      + "  for (var i = 0; i < sources.length; i++) {\n"
+      + "    jshint(sources[i], options, globals);\n"
+      + "    errors.push(jshint.errors);\n"
+      + "  }\n"
+      + "  return errors;\n"
+      + "})";
+
+  private final JsEngine m_engine;
+  private final Function m_jsHint;
+  private Function m_batchLint;
+  private final NativeObject m_options;
+  private final NativeObject m_globals;
+
+  /**
+   * Create a new linter
+   * @param engine JS engine with JSHint loaded
+   * @param options JSHint options
+   * @param globals allowed globals (may be <code>null</code>)
+   */
+  public JsHintLinter(JsEngine engine, NativeObject options, NativeObject globals) {
+    m_engine = engine;
+    m_jsHint = (Function) engine.get("JSHINT");
+    m_options = options;
+    m_globals = globals;
+  }
+
+  /**
+   * Lint a single source file
+   * @param srcFile name of the source file (used in the errors)
+   * @param source contents of the source file
+   * @return the violations found in the file
+   */
+  public List<JsHintError> lint(String srcFile, String source) {
+    // JSHint splits the source into lines itself
+    m_engine.call(m_jsHint, source, m_options, m_globals);
+    return toErrors(srcFile, (NativeArray) m_engine.get(m_jsHint, "errors"));
+  }
+
+  /**
+   * Lint a single source file, giving up if JSHint runs for longer than the timeout
+   * @param srcFile name of the source file (used in the errors)
+   * @param source contents of the source file
+   * @param timeout timeout in milliseconds
+   * @return the violations found in the file
+   * @throws TimeoutException if JSHint runs past the timeout
+   */
+  public List<JsHintError> lint(String srcFile, String source, long timeout) throws TimeoutException {
+    m_engine.call(timeout, TimeUnit.MILLISECONDS, m_jsHint, source, m_options, m_globals);
+    return toErrors(srcFile, (NativeArray) m_engine.get(m_jsHint, "errors"));
+  }
+
+  /**
+   * Lint several source files in a single call into the engine, which saves the per-call overhead on many small
+   * files. The results are the same as linting the files one by one.
+   * @param srcFiles names of the source files (used in the errors)
+   * @param sources contents of the source files
+   * @return the violations found in each file, in the same order as the files
+   */
+  public List<List<JsHintError>> lint(String[] srcFiles, String[] sources) {
+    if (m_batchLint == null) {
+      m_batchLint = (Function) m_engine.eval(BATCH_JS);
+    }
+    NativeArray nativeErrors = (NativeArray) m_engine.call(m_batchLint, m_jsHint, m_engine.newArray(sources),
+                                                           m_options, m_globals);
+    List<List<JsHintError>> errors = new ArrayList<List<JsHintError>>(srcFiles.length);
+    for (int i = 0; i < srcFiles.length; i++) {
+      errors.add(toErrors(srcFiles[i], (NativeArray) nativeErrors.get(i, nativeErrors)));
+    }
+    return errors;
+  }
+
+  /**
+   * Convert the errors reported by JSHint
+   * @param srcFile name of the source file (used in the errors)
+   * @param nativeErrors the <code>JSHINT.errors</code> array
+   * @return the violations
+   */
+  public static List<JsHintError> toErrors(String srcFile, NativeArray nativeErrors) {
+    int length = (int) nativeErrors.getLength();
+    List<JsHintError> errors = new ArrayList<JsHintError>(length);
+    // JSHint formats the reason of every error anew, but a file with many errors keeps repeating a few reasons
+    Map<String, String> reasons = new HashMap<String, String>();
+    for (int i = 0; i < length; i++) {
+      // JSHint ends the errors with null when it gives up on a file, e.g. with passfail
+      Object element = nativeErrors.get(i, nativeErrors);
+      if (!(element instanceof Scriptable)) {
+        continue;
+      }
+      Scriptable nativeError = (Scriptable) element;
+      String reason = toString(nativeError.get("reason", nativeError));
+      // handling the built-in JsHint error limit
+      if (reason != null && reason.startsWith("Too many errors")) {
+        break;
+      }
+      if (reason != null) {
+        String shared = reasons.get(reason);
+        if (shared == null) {
+          reasons.put(reason, reason);
+        } else {
+          reason = shared;
+        }
+      }
+      // the evidence is the source line, which JSHint already shares among the errors on the same line
+      errors.add(new JsHintError(srcFile, ((Number) nativeError.get("line", nativeError)).intValue(),
+                                 ((Number) nativeError.get("character", nativeError)).intValue(),
+                                 toString(nativeError.get("evidence", nativeError)), reason));
+    }
+    return errors;
+  }
+
+  /**
+   * @return the string value of a JS property, or <code>null</code> if the property is not a string
+   */
+  private static String toString(Object value) {
+    return value instanceof CharSequence ? value.toString() : null;
+  }
+}
@@ -17,36 +17,32 @@
 package com.vecna.maven.jshint.mojo;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.StringUtils;
-import org.mozilla.javascript.Function;
-import org.mozilla.javascript.NativeArray;
-import org.mozilla.javascript.NativeObject;
-import org.mozilla.javascript.RhinoException;
-
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.vecna.maven.jshint.report.JsHintCheckstyleReporter;
-import com.vecna.maven.jshint.report.JsHintReporter;
-import com.vecna.maven.jshint.rhino.JsEngine;
+
+import com.google.common.base.Stopwatch;
+import com.vecna.maven.jshint.cache.LintCache;
+import com.vecna.maven.jshint.daemon.DaemonClient;
+import com.vecna.maven.jshint.daemon.ForkedLinter;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.rhino.JsScript;
 
 /**
  * JSHint plugin.
@@ -55,202 +51,299 @@ import com.vecna.maven.jshint.rhino.JsEngine;
 @Mojo(name = "check",
       defaultPhase = LifecyclePhase.PROCESS_SOURCES,
       threadSafe = true)
-public class JsHintMojo extends AbstractMojo {
+public class JsHintMojo extends AbstractJsHintMojo {
   /**
-   * Location of the JSHint source on the classpath. Only needs to be set if a custom version of JSHint is needed.
+   * Maximum number of JSHint violations. Exceeding this will fail the build.
    */
-  @Parameter(defaultValue = "jshint.js")
-  private String jsHintJS;
+  @Parameter(defaultValue = "0")
+  private int maxErrorsAllowed;
 
   /**
-   * Directory with the javascript files to be checked.
+   * Only lint the files that were added or modified since this git commit, branch or tag, or that are untracked.
+   * If the current branch was forked from the given branch, changes are taken since the fork point. If the source
+   * directory is not in a git checkout, all files are linted.
    */
-  @Parameter(defaultValue = "${basedir}/src/main/javascript")
-  private File srcDirectory;
+  @Parameter
+  private String sinceRef;
 
   /**
-   * List of file name patterns to include.
+   * The git executable used with <code>sinceRef</code>.
    */
-  @Parameter
-  private String[] includes;
+  @Parameter(defaultValue = "git")
+  private String gitExecutable;
 
   /**
-   * List of file name patterns to exclude.
+   * Whether to stop linting as soon as there are more violations than <code>maxErrorsAllowed</code>.
+   * The report then only covers the files linted so far.
    */
-  @Parameter
-  private String[] excludes;
+  @Parameter(defaultValue = "false")
+  private boolean failFast;
 
   /**
-   * Location of the JSHint options file on the classpath or filesystem.
+   * Number of threads to lint with. Either a positive number or <code>cores</code> to use one thread per
+   * available processor. Each thread bootstraps its own copy of JSHint.
    */
-  @Parameter(defaultValue = "jshintrc")
-  private String optionsFile;
+  @Parameter(defaultValue = "cores")
+  private String threads;
 
   /**
-   * JSHint options (these take priority over the options file).
+   * Whether to cache lint results between builds. Files that haven't changed since the last build are not linted again
+   * unless the JSHint script or their effective options have changed.
    */
-  @Parameter
-  private Map<String, String> options;
+  @Parameter(defaultValue = "true")
+  private boolean useCache;
 
   /**
-   * Allowed globals (these take priority over the options file).
+   * Location of the lint result cache.
    */
-  @Parameter
-  private Map<String, String> globals;
+  @Parameter(defaultValue = "${project.build.directory}/jshint.cache")
+  private File cacheFile;
 
   /**
-   * Maximum number of JSHint violations. Exceeding this will fail the build.
+   * Whether to record how long each file takes to lint, and lint the files expected to take the longest first in the
+   * next build, so that a large file picked up last doesn't leave a single thread working at the end of the run.
+   * Files that haven't been linted before are expected to take time in proportion to their size.
    */
-  @Parameter(defaultValue = "0")
-  private int maxErrorsAllowed;
+  @Parameter(defaultValue = "true")
+  private boolean useHistory;
 
   /**
-   * Whether to skip execution.
+   * Location of the lint time history.
    */
-  @Parameter
-  private boolean skip;
+  @Parameter(defaultValue = "${project.build.directory}/jshint.history")
+  private File historyFile;
 
   /**
-   * Location of the violation report.
+   * Whether to lint in a background JVM that stays alive between builds with JSHint already bootstrapped.
+   * The first build starts the daemon and lints in-process; whenever the daemon can't be reached, linting
+   * falls back to the build JVM.
    */
-  @Parameter(defaultValue = "${project.build.directory}/jshint.xml")
-  private File reportOutput;
+  @Parameter(defaultValue = "false")
+  private boolean daemon;
 
-  private final JsHintReporter reporter = new JsHintCheckstyleReporter();
+  /**
+   * Number of seconds the lint daemon stays alive without receiving requests.
+   */
+  @Parameter(defaultValue = "10800")
+  private int daemonIdleTimeout;
 
   /**
-   * Open a classpath resource for reading
-   * @param path the path to the resource
-   * @return an {@link InputStream} or <code>null</code> if the resource is not found
+   * Directory with the lint daemon state and log files.
    */
-  private InputStream openClasspathResource(String path) {
-    return Thread.currentThread().getContextClassLoader().getResourceAsStream(path);
-  }
+  @Parameter(defaultValue = "${user.home}/.m2/jshint-daemon")
+  private File daemonDirectory;
+
+  /**
+   * Number of JVMs to lint in. With more than one, the source files are split into that many shards of about the same
+   * expected lint time (see <code>useHistory</code>) or total size, and each shard is linted in a separate JVM forked
+   * for the build, with <code>threads</code> divided among them. The report is the same as with a single JVM. Forked
+   * JVMs don't record the timings of each file, and take precedence over the lint daemon.
+   */
+  @Parameter(defaultValue = "1")
+  private int forkCount;
+
+  /**
+   * Location of the JSON file with the timings of the execution and of each linted file.
+   * Defaults to <code>jshint-metrics.json</code> next to the violation report.
+   */
+  @Parameter
+  private File metricsOutput;
 
   /**
-   * Open a file or classpath resource for reading
-   * @param path the path (first looked up on the file system, then on the classpath)
-   * @return an {@link InputStream} or <code>null</code> if the resource is not found
+   * Number of the slowest files to list in the log after linting (0 to disable).
    */
-  private InputStream openFileOrClasspathResource(String path) {
+  @Parameter(defaultValue = "10")
+  private int slowestFiles;
+
+  /**
+   * @return the source files that changed since <code>sinceRef</code>, sorted like those of a full scan, or
+   *         <code>null</code> if the source directory is not in a git checkout or git fails
+   */
+  private String[] getChangedSourceFiles(SourceScanner scanner) {
+    GitChanges git = new GitChanges(gitExecutable, srcDirectory);
+    if (!git.isWorkTree()) {
+      getLog().warn(srcDirectory + " is not in a git working tree, linting all files");
+      return null;
+    }
+
+    List<String> changed;
     try {
-      return new FileInputStream(path);
-    } catch (FileNotFoundException e) {
-      return openClasspathResource(path);
+      changed = git.list(sinceRef);
+    } catch (IOException e) {
+      getLog().warn("failed to list the files changed since " + sinceRef + ", linting all files", e);
+      return null;
     }
+
+    List<String> sourceFiles = new ArrayList<String>();
+    for (String file : changed) {
+      if (scanner.accept(file)) {
+        sourceFiles.add(file);
+      }
+    }
+    // git lists the untracked files after the changed ones
+    Collections.sort(sourceFiles);
+    getLog().info(sourceFiles.size() + " source files changed since " + sinceRef);
+    return sourceFiles.toArray(new String[sourceFiles.size()]);
   }
 
   /**
-   * Read JSHint options from a JSON file specified in the configuration
-   * @param engine JS engine
-   * @return JS object with the options or an empty object if the options file doesn't exist
-   * @throws MojoExecutionException if an error occurred while reading or parsing the file
+   * @return source files (relative to the source directory)
+   * @throws MojoExecutionException if the source directory cannot be scanned
    */
-  private NativeObject readOptionsFromFile(JsEngine engine) throws MojoExecutionException {
-    if (StringUtils.isNotEmpty(optionsFile)) {
-      InputStream optionsSrc = openFileOrClasspathResource(optionsFile);
-      if (optionsSrc != null) {
-        String json;
-        try {
-          json = IOUtils.toString(optionsSrc);
-        } catch (IOException e) {
-          throw new MojoExecutionException("failed to read " + optionsFile, e);
-        }
-        try {
-          return engine.parseJSON(json);
-        } catch (RhinoException e) {
-          throw new MojoExecutionException("failed to parse " + optionsFile, e);
-        }
+  private String[] getSourceFiles() throws MojoExecutionException {
+    SourceScanner scanner = new SourceScanner(includes, excludes);
+    if (sinceRef != null) {
+      String[] changed = getChangedSourceFiles(scanner);
+      if (changed != null) {
+        return changed;
       }
     }
 
-    return new NativeObject();
+    try {
+      return scanner.scan(srcDirectory, parallelScan);
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to scan " + srcDirectory, e);
+    }
   }
 
   /**
-   * Extract (and remove) the globals parameter from jshintrc options
+   * @return the number of worker threads to lint with
+   * @throws MojoExecutionException if the <code>threads</code> parameter is invalid
    */
-  private NativeObject extractGlobals(NativeObject optionsFromFile) throws MojoExecutionException {
-    Object globalsFromFile = optionsFromFile.remove("globals");
-    if (globalsFromFile != null && !(globalsFromFile instanceof NativeObject)) {
-      throw new MojoExecutionException("bad globals definition");
-    } else {
-      return (NativeObject) globalsFromFile;
+  private int getThreadCount() throws MojoExecutionException {
+    if ("cores".equals(threads)) {
+      return Runtime.getRuntime().availableProcessors();
+    }
+    int count;
+    try {
+      count = Integer.parseInt(threads);
+    } catch (NumberFormatException e) {
+      throw new MojoExecutionException("bad threads value: " + threads);
+    }
+    if (count < 1) {
+      throw new MojoExecutionException("bad threads value: " + threads);
     }
+    return count;
   }
 
   /**
-   * Apply the globals from the plugin configuration to the globals extracted from the options file
+   * @param engineFactory JS engine backend to run JSHint on
+   * @return a linter that forks <code>forkCount</code> JVMs, or <code>null</code> if the JVMs can't be forked
+   * @throws MojoExecutionException if the <code>forkCount</code> or <code>threads</code> parameter is invalid
    */
-  private NativeObject addGlobals(NativeObject globalsFromFile) {
-    if (globals != null) {
-      NativeObject merged = globalsFromFile == null ? new NativeObject() : globalsFromFile;
-      for (Entry<String, String> keyval : globals.entrySet()) {
-        merged.put(keyval.getKey(), merged, Boolean.valueOf(keyval.getValue()));
-      }
-      return merged;
-    } else {
-      return globalsFromFile;
+  private ForkedLinter createForkedLinter(LintEngineFactory engineFactory) throws MojoExecutionException {
+    if (forkCount < 1) {
+      throw new MojoExecutionException("bad forkCount value: " + forkCount);
+    }
+    int threadsPerFork = Math.max(1, getThreadCount() / forkCount);
+    ForkedLinter forks = ForkedLinter.create(jsHintJS, precompiled, engineFactory.getName(), getSnapshotDirectory(),
+                                             threadsPerFork, getEngineRecycling(), getLog());
+    if (forks == null) {
+      getLog().warn("cannot determine the plugin classpath, linting in a single JVM");
     }
+    return forks;
   }
 
   /**
-   * @return source files (relative to the source directory)
+   * Lint source files in-process
+   * @param sourceFiles source files
+   * @param estimates expected lint time of each source file (may be <code>null</code> to lint the files in order)
+   * @param jsHint JSHint script
+   * @param engineFactory JS engine backend to run JSHint on
+   * @param options effective options of each source file
+   * @param charset encoding of the source files
+   * @param metrics records the timings
+   * @param listener receives the errors of each source file, in the same order as the source files
+   * @throws MojoExecutionException if a file cannot be read, JSHint fails or the listener fails
    */
-  private String[] getSourceFiles() {
-    DirectoryScanner scanner = new DirectoryScanner();
-    scanner.setBasedir(srcDirectory);
-    scanner.setIncludes(includes);
-    scanner.setExcludes(excludes);
-    scanner.scan();
-
-    return scanner.getIncludedFiles();
+  private void lint(String[] sourceFiles, long[] estimates, JsScript jsHint, LintEngineFactory engineFactory,
+                    JsHintOptions[] options, Charset charset, LintMetrics metrics, LintListener listener)
+      throws MojoExecutionException {
+    ErrorCompactor compactor = new ErrorCompactor(maxEvidenceLength);
+    LintCache cache = useCache ? LintCache.load(cacheFile, jsHint, compactor) : null;
+
+    int threadCount = Math.min(getThreadCount(), sourceFiles.length);
+    getLog().debug("linting with " + threadCount + " threads");
+    // the order only matters when there are several threads to keep busy
+    int[] order = estimates != null && threadCount > 1 ? LintHistory.longestFirst(estimates) : null;
+    JsHintRunner runner = new JsHintRunner(jsHint, engineFactory, threadCount, getEngineRecycling(), getLog());
+    try {
+      runner.lint(srcDirectory, sourceFiles, order, options, charset, cache, metrics, getMinifiedPolicy(),
+                  minifiedTimeout, fileTimeout, batchSize, compactor, listener);
+      if (cache != null) {
+        getLog().info(cache.getHitCount() + " of " + sourceFiles.length + " files unchanged since the last run");
+      }
+      if (order != null) {
+        logCriticalPath(sourceFiles, estimates, order, threadCount, metrics);
+      }
+    } finally {
+      runner.shutdown();
+      // keep the results of the files linted so far, even if linting stopped early
+      if (cache != null) {
+        try {
+          cache.save(srcDirectory);
+        } catch (IOException e) {
+          getLog().warn("failed to write the lint cache " + cacheFile, e);
+        }
+      }
+    }
   }
 
   /**
-   * @return true/false if the value is "true"/"false", integer if the value is numeric, or the string value itself
+   * Log how long the busiest thread was expected to lint and how long it actually did, going by the lint time of each
+   * file
    */
-  private Object toOptionValue(String value) {
-    if ("true".equals(value)) {
-      return true;
-    } else if ("false".equals(value)) {
-      return false;
-    } else if (StringUtils.isNumeric(value)) {
-      return Integer.valueOf(value);
-    } else {
-      return value;
+  private void logCriticalPath(String[] sourceFiles, long[] estimates, int[] order, int threadCount,
+                               LintMetrics metrics) {
+    Map<String, Long> times = new HashMap<String, Long>();
+    for (LintMetrics.FileMetrics file : metrics.getFiles()) {
+      times.put(file.getSource(), file.getNanos());
     }
+    long[] actual = new long[sourceFiles.length];
+    for (int i = 0; i < sourceFiles.length; i++) {
+      Long time = times.get(sourceFiles[i]);
+      actual[i] = time == null ? 0 : time;
+    }
+    getLog().info("linted the slowest files first, critical path: "
+                  + LintMetrics.millis(LintHistory.criticalPath(estimates, order, threadCount)) + " ms predicted, "
+                  + LintMetrics.millis(LintHistory.criticalPath(actual, order, threadCount)) + " ms actual");
   }
 
   /**
-   * combine the options from the plugin configuration with the options read from the file
+   * Record the lint time of each file and write the history file
    */
-  private void addOptions(NativeObject optionsObject) {
-    if (options != null) {
-      for (Entry<String, String> keyval : options.entrySet()) {
-        optionsObject.put(keyval.getKey(), optionsObject, toOptionValue(keyval.getValue()));
-      }
+  private void saveHistory(LintHistory history, LintMetrics metrics) {
+    for (LintMetrics.FileMetrics file : metrics.getFiles()) {
+      history.record(file.getSource(), file.getNanos(), file.isCached());
+    }
+    try {
+      history.save(srcDirectory);
+    } catch (IOException e) {
+      getLog().warn("failed to write the lint history " + historyFile, e);
     }
   }
 
   /**
-   * create the error report
-   * @param errors errors
-   * @throws IOException if the report file cannot be written to
+   * Log the slowest files and write the metrics file
+   * @param metrics the metrics
+   * @param fileCount number of source files
+   * @param errorCount total number of violations
    */
-  private void writeReport(Multimap<String, JsHintError> errors) throws IOException, MojoExecutionException {
-    try {
-      org.codehaus.plexus.util.FileUtils.forceMkdir(reportOutput.getParentFile());
-    } catch (IOException e) {
-      throw new MojoExecutionException("cannot create directory " + reportOutput.getParentFile());
+  private void reportMetrics(LintMetrics metrics, int fileCount, int errorCount) {
+    List<LintMetrics.FileMetrics> slowest = metrics.getSlowestFiles(slowestFiles);
+    if (!slowest.isEmpty()) {
+      getLog().info("slowest files:");
+      for (LintMetrics.FileMetrics file : slowest) {
+        getLog().info("  " + file.getSource() + ": " + LintMetrics.millis(file.getNanos()) + " ms, "
+                      + file.getErrorCount() + " errors" + (file.isCached() ? " (cached)" : ""));
+      }
     }
 
-    OutputStream reportOut = new FileOutputStream(reportOutput);
-
+    File output = metricsOutput == null ? new File(reportOutput.getParentFile(), "jshint-metrics.json") : metricsOutput;
     try {
-      reporter.report(errors, reportOut);
-    } finally {
-      reportOut.close();
+      metrics.write(output, fileCount, errorCount);
+    } catch (IOException e) {
+      getLog().warn("failed to write the metrics to " + output, e);
     }
   }
 
@@ -262,59 +355,137 @@ public class JsHintMojo extends AbstractMojo {
     if (skip) {
       getLog().info("skipping execution");
     } else {
+      final LintMetrics metrics = new LintMetrics();
+      Stopwatch total = Stopwatch.createStarted();
+
+      Stopwatch phase = Stopwatch.createStarted();
       String[] sourceFiles = getSourceFiles();
+      metrics.phase("scan", phase.elapsed(TimeUnit.NANOSECONDS));
+
       if (sourceFiles.length == 0) {
         getLog().info("no source files found");
       } else {
-        final InputStream jsHintSrc = openClasspathResource(jsHintJS);
-
-        JsEngine engine;
+        phase.reset().start();
+        JsScript jsHint = loadJsHint();
+        LintEngineFactory engineFactory = getEngineFactory();
+        metrics.phase("load", phase.elapsed(TimeUnit.NANOSECONDS));
+
+        phase.reset().start();
+        OptionsResolver resolver = new OptionsResolver();
+        JsHintOptions[] options;
         try {
-          engine = new JsEngine().browserEnv().eval(jsHintSrc);
-        } catch (IOException e) {
-          throw new MojoExecutionException("failed to bootstrap JSHint", e);
+          options = resolver.resolve(sourceFiles);
+          getLog().debug(resolver.getDistinctCount() + " distinct sets of options");
+        } finally {
+          resolver.close();
         }
+        LintHistory history = useHistory ? LintHistory.load(historyFile) : null;
+        long[] estimates = history == null ? null : history.estimate(srcDirectory, sourceFiles);
+        metrics.phase("options", phase.elapsed(TimeUnit.NANOSECONDS));
+
+        Charset charset = getCharset();
+        MinifiedFilePolicy minifiedPolicy = getMinifiedPolicy();
+        final AtomicInteger errorCount = new AtomicInteger();
+        final AtomicInteger lintedCount = new AtomicInteger();
+        final AtomicInteger timedOutCount = new AtomicInteger();
+        int skippedCount = 0;
+        OutputStream reportOut = openReport();
+        try {
+          reporter.start(reportOut);
+          LintListener listener = new LintListener() {
+            @Override
+            public void fileLinted(String srcFile, List<JsHintError> errors) throws MojoExecutionException {
+              for (JsHintError error : errors) {
+                getLog().error(error.toString());
+              }
+              int errorsSoFar = errorCount.addAndGet(errors.size());
+              lintedCount.incrementAndGet();
+              long start = System.nanoTime();
+              reporter.reportFile(srcFile, errors);
+              metrics.phase("report", System.nanoTime() - start);
+              if (failFast && errorsSoFar > maxErrorsAllowed) {
+                throw new ErrorBudgetExceededException(errorsSoFar);
+              }
+            }
 
-        NativeObject combinedOpts = readOptionsFromFile(engine);
-        NativeObject combinedGlobals = extractGlobals(combinedOpts);
-
-        addOptions(combinedOpts);
-        addGlobals(combinedGlobals);
+            @Override
+            public void fileSkipped(String srcFile, String reason) throws MojoExecutionException {
+              getLog().warn("skipped " + srcFile + ": " + reason);
+              lintedCount.incrementAndGet();
+              reporter.skipFile(srcFile, reason);
+            }
 
-        Function jsHint = (Function) engine.get("JSHINT");
+            @Override
+            public void fileTimedOut(String srcFile, String message) throws MojoExecutionException {
+              getLog().warn(srcFile + ": " + message);
+              lintedCount.incrementAndGet();
+              timedOutCount.incrementAndGet();
+              reporter.timeoutFile(srcFile, message);
+            }
 
-        Multimap<String, JsHintError> errors = HashMultimap.create();
+            @Override
+            public void fileFlagged(String srcFile, String warning) {
+              getLog().warn(srcFile + " " + warning);
+            }
+          };
 
-        for (String srcFile : sourceFiles) {
-          List<String> source;
+          phase.reset().start();
           try {
-            source = FileUtils.readLines(new File(srcDirectory, srcFile));
-          } catch (IOException e) {
-            throw new MojoExecutionException("failed to read " + srcFile, e);
-          }
-          NativeArray array = new NativeArray(source.toArray());
-          engine.call(jsHint, array, combinedOpts, combinedGlobals);
-          NativeArray nativeErrors = (NativeArray) engine.get(jsHint, "errors");
-          for (int i = 0; i < nativeErrors.size(); i++) {
-            NativeObject nativeError = (NativeObject) nativeErrors.get(i);
-            JsHintError error = new JsHintError(srcFile, nativeError);
-            // handling the built-in JsHint error limit
-            if (error.getReason().startsWith("Too many errors")) {
-              break;
+            int linted = 0;
+            ForkedLinter forks = forkCount != 1 ? createForkedLinter(engineFactory) : null;
+            if (forks != null) {
+              forks.lint(Math.min(forkCount, sourceFiles.length), jsHint, srcDirectory, sourceFiles, estimates, options,
+                         charset, useCache ? cacheFile : null, minifiedPolicy, minifiedTimeout, fileTimeout, batchSize,
+                         maxEvidenceLength, listener);
+              linted = sourceFiles.length;
+            } else if (daemon) {
+              DaemonClient client = new DaemonClient(daemonDirectory, jsHintJS, precompiled, engineFactory.getName(),
+                                                     getThreadCount(), getEngineRecycling(), daemonIdleTimeout,
+                                                     getLog());
+              linted = client.lint(jsHint, srcDirectory, sourceFiles, options, charset, useCache ? cacheFile : null,
+                                   minifiedPolicy, minifiedTimeout, fileTimeout, batchSize, maxEvidenceLength,
+                                   listener);
+              getLog().debug("the lint daemon linted " + linted + " files");
             }
-            getLog().error(error.toString());
-            errors.put(error.getSource(), error);
+            if (linted < sourceFiles.length) {
+              lint(Arrays.copyOfRange(sourceFiles, linted, sourceFiles.length),
+                   estimates == null ? null : Arrays.copyOfRange(estimates, linted, estimates.length), jsHint,
+                   engineFactory, Arrays.copyOfRange(options, linted, options.length), charset, metrics, listener);
+            }
+          } catch (ErrorBudgetExceededException e) {
+            skippedCount = sourceFiles.length - lintedCount.get();
+            reporter.truncate(skippedCount);
+          }
+          metrics.phase("lint", phase.elapsed(TimeUnit.NANOSECONDS));
+          if (history != null) {
+            saveHistory(history, metrics);
           }
-        }
 
-        try {
-          writeReport(errors);
+          phase.reset().start();
+          reporter.finish();
+          reportOut.close();
+          metrics.phase("report", phase.elapsed(TimeUnit.NANOSECONDS));
         } catch (IOException e) {
           throw new MojoExecutionException("failed to write the report", e);
+        } finally {
+          IOUtils.closeQuietly(reportOut);
+        }
+        if (LintEngines.RHINO.equals(engineFactory.getName())) {
+          getLog().debug("JSHint ran " + (jsHint.isPrecompiled() ? "from precompiled classes" : "in the interpreter"));
         }
 
-        if (errors.size() > maxErrorsAllowed) {
-          throw new MojoFailureException("JSHint violations: " + errors.size() + ". Allowed violations: " + maxErrorsAllowed);
+        metrics.phase("total", total.elapsed(TimeUnit.NANOSECONDS));
+        reportMetrics(metrics, sourceFiles.length, errorCount.get());
+        if (timedOutCount.get() > 0) {
+          getLog().warn("JSHint timed out on " + timedOutCount.get() + " of " + sourceFiles.length + " files");
+        }
+
+        if (errorCount.get() > maxErrorsAllowed) {
+          String message = "JSHint violations: " + errorCount.get() + ". Allowed violations: " + maxErrorsAllowed;
+          if (skippedCount > 0) {
+            message += ". Stopped linting early, " + skippedCount + " files were not linted";
+          }
+          throw new MojoFailureException(message);
         }
 
       }
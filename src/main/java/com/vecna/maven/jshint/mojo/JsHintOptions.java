@@ -0,0 +1,106 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import org.mozilla.javascript.NativeObject;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.vecna.maven.jshint.rhino.JsEngine;
+
+/**
+ * The effective JSHint options and globals (the options file merged with the plugin configuration),
+ * kept as JSON so that they can be shared between engines and threads.
+ * @author ogolberg@vecna.com
+ */
+public class JsHintOptions {
+  private final String m_options;
+  private final String m_globals;
+  private final String m_hash;
+
+  /**
+   * Create new options
+   * @param options JSON with the JSHint options
+   * @param globals JSON with the allowed globals (may be <code>null</code>)
+   */
+  public JsHintOptions(String options, String globals) {
+    m_options = options;
+    m_globals = globals;
+
+    Hasher hasher = Hashing.sha1().newHasher();
+    hasher.putString(m_options, Charsets.UTF_8);
+    hasher.putBoolean(m_globals != null);
+    if (m_globals != null) {
+      hasher.putString(m_globals, Charsets.UTF_8);
+    }
+    m_hash = hasher.hash().toString();
+  }
+
+  /**
+   * @return JSON with the JSHint options
+   */
+  public String getOptions() {
+    return m_options;
+  }
+
+  /**
+   * @return JSON with the allowed globals or <code>null</code> if there are none
+   */
+  public String getGlobals() {
+    return m_globals;
+  }
+
+  /**
+   * @param engine JS engine
+   * @return the options as an object of the given engine
+   */
+  public NativeObject parseOptions(JsEngine engine) {
+    return engine.parseJSON(m_options);
+  }
+
+  /**
+   * @param engine JS engine
+   * @return the globals as an object of the given engine or <code>null</code> if there are none
+   */
+  public NativeObject parseGlobals(JsEngine engine) {
+    return m_globals == null ? null : engine.parseJSON(m_globals);
+  }
+
+  /**
+   * @return a hash that changes whenever the effective options or globals change
+   */
+  public String hash() {
+    return m_hash;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof JsHintOptions && m_hash.equals(((JsHintOptions) obj).m_hash);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    return m_hash.hashCode();
+  }
+}
@@ -0,0 +1,506 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vecna.maven.jshint.cache.LintCache;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.engine.LintEngine;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Lints source files on a pool of worker threads.
+ * Each worker thread bootstraps its own JSHint engine (engines are bound to a thread) the first time it finds a file
+ * that is not in the cache, and keeps it until the engine is due for recycling (see {@link EngineRecycling}) or the
+ * runner shuts down, when the engine is closed on its thread. Small files that share their options are linted in
+ * batches, in a single call into the engine per batch.
+ * @author ogolberg@vecna.com
+ */
+public class JsHintRunner {
+  /**
+   * Maximum number of characters of source in a batch; a file that is a quarter of this or larger is linted alone.
+   */
+  private static final int BATCH_CHARS = 64 * 1024;
+
+  private final JsScript m_jsHint;
+  private final LintEngineFactory m_engineFactory;
+  private final int m_threads;
+  private final EngineRecycling m_recycling;
+  private final Log m_log;
+  private final ExecutorService m_pool;
+  private final ThreadLocal<WorkerEngine> m_engines = new ThreadLocal<WorkerEngine>();
+
+  /**
+   * The engine of a worker thread and the number of files it has linted.
+   */
+  private static class WorkerEngine {
+    private final LintEngine m_engine;
+    private int m_filesLinted;
+
+    WorkerEngine(LintEngine engine) {
+      m_engine = engine;
+    }
+  }
+
+  /**
+   * Create a new runner
+   * @param jsHint JSHint script
+   * @param engineFactory JS engine backend to run JSHint on
+   * @param threads number of worker threads
+   * @param recycling when to replace the engines with freshly bootstrapped ones
+   * @param log log of the engine recycling
+   */
+  public JsHintRunner(JsScript jsHint, LintEngineFactory engineFactory, int threads, EngineRecycling recycling,
+                      Log log) {
+    m_jsHint = jsHint;
+    m_engineFactory = engineFactory;
+    m_threads = threads;
+    m_recycling = recycling;
+    m_log = log;
+    final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("jshint-%d").setDaemon(true).build();
+    m_pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable worker) {
+        return threadFactory.newThread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              worker.run();
+            } finally {
+              // the engine can only be closed on its own thread, as the thread leaves the pool
+              discardEngine();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * @return the JSHint script
+   */
+  public JsScript getJsHint() {
+    return m_jsHint;
+  }
+
+  /**
+   * @param metrics records the bootstrap time (may be <code>null</code>)
+   * @return the engine of the current worker thread, bootstrapping it if necessary
+   */
+  private LintEngine getEngine(LintMetrics metrics) {
+    WorkerEngine engine = m_engines.get();
+    if (engine == null) {
+      long start = System.nanoTime();
+      engine = new WorkerEngine(m_engineFactory.bootstrap(m_jsHint));
+      m_engines.set(engine);
+      if (metrics != null) {
+        metrics.engineBootstrapped(System.nanoTime() - start);
+      }
+    }
+    return engine.m_engine;
+  }
+
+  /**
+   * Close the engine of the current worker thread, so that the next file is linted by a freshly bootstrapped JSHint.
+   * Used when the engine is recycled, after JSHint was aborted halfway through a file and when the thread exits.
+   */
+  private void discardEngine() {
+    WorkerEngine engine = m_engines.get();
+    if (engine != null) {
+      m_engines.remove();
+      engine.m_engine.close();
+    }
+  }
+
+  /**
+   * Count files linted by the engine of the current worker thread, and recycle the engine if it is due
+   * @param files number of files
+   */
+  private void engineUsed(int files) {
+    WorkerEngine engine = m_engines.get();
+    if (engine == null) {
+      return;
+    }
+    engine.m_filesLinted += files;
+    String reason = m_recycling.check(engine.m_filesLinted);
+    if (reason != null) {
+      m_log.info("recycling the JSHint engine of " + Thread.currentThread().getName() + ": " + reason);
+      discardEngine();
+    }
+  }
+
+  /**
+   * Bootstrap JSHint on every worker thread ahead of the first lint.
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public void warmUp() throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(m_threads);
+    final CountDownLatch done = new CountDownLatch(m_threads);
+    for (int i = 0; i < m_threads; i++) {
+      m_pool.submit(new Runnable() {
+        @Override
+        public void run() {
+          // hold on to this thread until every worker has a task so that each thread gets exactly one
+          started.countDown();
+          try {
+            started.await();
+            getEngine(null);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+    done.await();
+  }
+
+  /**
+   * A single lint request, shared by the workers.
+   */
+  private static class LintRun {
+    private final File m_baseDir;
+    private final String[] m_sourceFiles;
+    private final int[] m_order;
+    private final AtomicInteger m_next = new AtomicInteger();
+    private final OrderedResults m_results;
+    private final JsHintOptions[] m_options;
+    private final Charset m_charset;
+    private final LintCache m_cache;
+    private final LintMetrics m_metrics;
+    private final MinifiedFilePolicy m_minifiedPolicy;
+    private final long m_minifiedTimeout;
+    private final long m_fileTimeout;
+    private final int m_batchSize;
+    private final ErrorCompactor m_compactor;
+
+    LintRun(File baseDir, String[] sourceFiles, int[] order, JsHintOptions[] options, Charset charset, LintCache cache,
+            LintMetrics metrics, MinifiedFilePolicy minifiedPolicy, long minifiedTimeout, long fileTimeout,
+            int batchSize, ErrorCompactor compactor, LintListener listener) {
+      m_baseDir = baseDir;
+      m_sourceFiles = sourceFiles;
+      m_order = order;
+      m_results = new OrderedResults(sourceFiles, listener);
+      m_options = options;
+      m_charset = charset;
+      m_cache = cache;
+      m_metrics = metrics;
+      m_minifiedPolicy = minifiedPolicy;
+      m_minifiedTimeout = minifiedTimeout;
+      m_fileTimeout = fileTimeout;
+      m_batchSize = batchSize;
+      m_compactor = compactor;
+    }
+
+    /**
+     * @return the index of the next source file to lint, or the number of source files if there are none left
+     */
+    int next() {
+      int next = m_next.getAndIncrement();
+      if (next >= m_sourceFiles.length) {
+        return m_sourceFiles.length;
+      }
+      return m_order == null ? next : m_order[next];
+    }
+
+    /**
+     * Stop handing out files and drop the results of the files that are still being linted
+     */
+    void stop() {
+      m_next.set(m_sourceFiles.length);
+      m_results.close();
+    }
+  }
+
+  /**
+   * Source files waiting to be linted together.
+   */
+  private static class Batch {
+    private final List<Integer> m_indexes = new ArrayList<Integer>();
+    private final List<String> m_srcFiles = new ArrayList<String>();
+    private final List<String> m_sources = new ArrayList<String>();
+    private final List<String> m_contentHashes = new ArrayList<String>();
+    private final List<String> m_minified = new ArrayList<String>();
+    private final List<Long> m_prepareTimes = new ArrayList<Long>();
+    private JsHintOptions m_options;
+    private int m_chars;
+
+    boolean isEmpty() {
+      return m_indexes.isEmpty();
+    }
+
+    /**
+     * @return whether a file can join this batch without exceeding its size
+     */
+    boolean accepts(String source, JsHintOptions options) {
+      return isEmpty() || options.equals(m_options) && m_chars + source.length() <= BATCH_CHARS;
+    }
+
+    void add(int index, String srcFile, String source, JsHintOptions options, String contentHash, String minified,
+             long prepareTime) {
+      m_indexes.add(index);
+      m_srcFiles.add(srcFile);
+      m_sources.add(source);
+      m_contentHashes.add(contentHash);
+      m_minified.add(minified);
+      m_prepareTimes.add(prepareTime);
+      m_options = options;
+      m_chars += source.length();
+    }
+
+    void clear() {
+      m_indexes.clear();
+      m_srcFiles.clear();
+      m_sources.clear();
+      m_contentHashes.clear();
+      m_minified.clear();
+      m_prepareTimes.clear();
+      m_options = null;
+      m_chars = 0;
+    }
+  }
+
+  /**
+   * Lints source files in the order assigned by a shared counter.
+   */
+  private class LintWorker implements Callable<Void> {
+    private final LintRun m_run;
+
+    LintWorker(LintRun run) {
+      m_run = run;
+    }
+
+    @Override
+    public Void call() throws MojoExecutionException {
+      SourceReader reader = new SourceReader(m_run.m_charset);
+      Batch batch = new Batch();
+      String[] sourceFiles = m_run.m_sourceFiles;
+      for (int i = m_run.next(); i < sourceFiles.length; i = m_run.next()) {
+        String srcFile = sourceFiles[i];
+        JsHintOptions options = m_run.m_options[i];
+        long start = System.nanoTime();
+        String source;
+        try {
+          source = reader.read(new File(m_run.m_baseDir, srcFile));
+        } catch (IOException e) {
+          throw new MojoExecutionException("failed to read " + srcFile, e);
+        }
+
+        String minified = null;
+        if (m_run.m_minifiedPolicy != MinifiedFilePolicy.LINT) {
+          minified = MinifiedSourceDetector.detect(source);
+          if (minified != null && m_run.m_minifiedPolicy == MinifiedFilePolicy.SKIP) {
+            m_run.m_results.skip(i, minified);
+            continue;
+          }
+        }
+
+        String contentHash = null;
+        List<JsHintError> errors = null;
+        if (m_run.m_cache != null) {
+          contentHash = LintCache.hash(source, options);
+          errors = m_run.m_cache.get(srcFile, contentHash);
+        }
+
+        if (errors != null) {
+          // errors read back from the cache don't share their reasons yet
+          complete(i, srcFile, m_run.m_compactor.compact(errors), minified, System.nanoTime() - start, true);
+          continue;
+        }
+
+        // don't count the bootstrap against the first file
+        long bootstrapStart = System.nanoTime();
+        LintEngine engine = getEngine(m_run.m_metrics);
+        start += System.nanoTime() - bootstrapStart;
+        if (minified != null && m_run.m_minifiedPolicy == MinifiedFilePolicy.TIMEOUT) {
+          try {
+            errors = engine.lint(srcFile, source, options, m_run.m_minifiedTimeout);
+            engineUsed(1);
+          } catch (TimeoutException e) {
+            discardEngine();
+            m_run.m_results.skip(i, minified + ", JSHint " + e.getMessage());
+            continue;
+          }
+        } else if (m_run.m_fileTimeout > 0) {
+          try {
+            errors = engine.lint(srcFile, source, options, m_run.m_fileTimeout);
+            engineUsed(1);
+          } catch (TimeoutException e) {
+            discardEngine();
+            if (m_run.m_metrics != null) {
+              m_run.m_metrics.fileLinted(srcFile, System.nanoTime() - start, 0, false);
+            }
+            m_run.m_results.timeOut(i, "lint timed out, JSHint " + e.getMessage());
+            continue;
+          }
+        } else if (m_run.m_batchSize > 1 && source.length() < BATCH_CHARS / 4) {
+          if (!batch.accepts(source, options)) {
+            flush(batch);
+          }
+          batch.add(i, srcFile, source, options, contentHash, minified, System.nanoTime() - start);
+          if (batch.m_indexes.size() >= m_run.m_batchSize) {
+            flush(batch);
+          }
+          continue;
+        } else {
+          errors = engine.lint(srcFile, source, options);
+          engineUsed(1);
+        }
+        cacheAndComplete(i, srcFile, contentHash, errors, minified, System.nanoTime() - start);
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+      }
+      return null;
+    }
+
+    /**
+     * Lint the files of a batch and clear it. The lint time of the batch is split among its files by their size.
+     */
+    private void flush(Batch batch) throws MojoExecutionException {
+      String[] srcFiles = batch.m_srcFiles.toArray(new String[batch.m_srcFiles.size()]);
+      String[] sources = batch.m_sources.toArray(new String[batch.m_sources.size()]);
+      // the engine may have been recycled since the files joined the batch
+      LintEngine engine = getEngine(m_run.m_metrics);
+      long start = System.nanoTime();
+      List<List<JsHintError>> errors = engine.lint(srcFiles, sources, batch.m_options);
+      long lintTime = System.nanoTime() - start;
+      engineUsed(srcFiles.length);
+      for (int i = 0; i < srcFiles.length; i++) {
+        long time = batch.m_prepareTimes.get(i) + lintTime * sources[i].length() / Math.max(batch.m_chars, 1);
+        cacheAndComplete(batch.m_indexes.get(i), srcFiles[i], batch.m_contentHashes.get(i), errors.get(i),
+                         batch.m_minified.get(i), time);
+      }
+      batch.clear();
+    }
+
+    /**
+     * Compact and cache the errors of a file that has just been linted and pass them on
+     */
+    private void cacheAndComplete(int index, String srcFile, String contentHash, List<JsHintError> errors,
+                                  String minified, long time) throws MojoExecutionException {
+      List<JsHintError> compacted = m_run.m_compactor.compact(errors);
+      if (m_run.m_cache != null) {
+        m_run.m_cache.put(srcFile, contentHash, compacted);
+      }
+      complete(index, srcFile, compacted, minified, time, false);
+    }
+
+    /**
+     * Record the metrics of a file and pass its errors on
+     */
+    private void complete(int index, String srcFile, List<JsHintError> errors, String minified, long time,
+                          boolean cached) throws MojoExecutionException {
+      if (m_run.m_metrics != null) {
+        m_run.m_metrics.fileLinted(srcFile, time, errors.size(), cached);
+      }
+      if (minified != null) {
+        m_run.m_results.complete(index, errors, minified);
+      } else {
+        m_run.m_results.complete(index, errors);
+      }
+    }
+  }
+
+  /**
+   * Lint source files, spreading them across the worker threads.
+   * @param baseDir directory the source files are relative to
+   * @param sourceFiles source files
+   * @param order indexes of the source files in the order they should be picked up by the workers (may be
+   *        <code>null</code> to lint them in order); the results are passed on in the order of the source files
+   *        regardless
+   * @param options effective options of each source file
+   * @param charset encoding of the source files
+   * @param cache lint result cache (may be <code>null</code>)
+   * @param metrics records the timing of each file and engine bootstrap (may be <code>null</code>)
+   * @param minifiedPolicy what to do with files that look minified
+   * @param minifiedTimeout timeout for linting a file that looks minified with {@link MinifiedFilePolicy#TIMEOUT},
+   *        in milliseconds
+   * @param fileTimeout timeout for linting any other file, in milliseconds (0 for no limit); a file that runs past
+   *        it is passed to {@link LintListener#fileTimedOut(String, String)}
+   * @param batchSize maximum number of small files to lint in a single call into the engine (1 to lint every file on
+   *        its own); ignored with a file timeout
+   * @param compactor compacts the errors before they are cached or passed to the listener
+   * @param listener receives the errors of each source file, in the same order as the source files
+   * @throws MojoExecutionException if a file cannot be read, JSHint fails or the listener fails
+   */
+  public void lint(File baseDir, String[] sourceFiles, int[] order, JsHintOptions[] options, Charset charset,
+                   LintCache cache, LintMetrics metrics, MinifiedFilePolicy minifiedPolicy, long minifiedTimeout,
+                   long fileTimeout, int batchSize, ErrorCompactor compactor, LintListener listener)
+      throws MojoExecutionException {
+    LintRun run = new LintRun(baseDir, sourceFiles, order, options, charset, cache, metrics, minifiedPolicy,
+                              minifiedTimeout, fileTimeout, batchSize, compactor, listener);
+    int workerCount = Math.min(m_threads, sourceFiles.length);
+
+    CompletionService<Void> completion = new ExecutorCompletionService<Void>(m_pool);
+    List<Future<Void>> workers = new ArrayList<Future<Void>>();
+    try {
+      for (int i = 0; i < workerCount; i++) {
+        workers.add(completion.submit(new LintWorker(run)));
+      }
+      // fail as soon as any of the workers fails, without waiting for the others
+      for (int i = 0; i < workerCount; i++) {
+        completion.take().get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("interrupted while linting", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof MojoExecutionException) {
+        throw (MojoExecutionException) e.getCause();
+      } else {
+        throw new MojoExecutionException("failed to lint", e.getCause());
+      }
+    } finally {
+      // stop the remaining workers of this run if one of them failed; a file that is being linted can't be
+      // interrupted, but its results are dropped
+      run.stop();
+      for (Future<Void> worker : workers) {
+        worker.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Stop the worker threads. Each engine is closed as its thread exits.
+   */
+  public void shutdown() {
+    m_pool.shutdownNow();
+  }
+}
@@ -0,0 +1,427 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.vecna.maven.jshint.engine.EngineRecycling;
+import com.vecna.maven.jshint.engine.LintEngine;
+import com.vecna.maven.jshint.engine.LintEngineFactory;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Lints the source files, then watches the source directory and lints the files that change until interrupted.
+ * JSHint is bootstrapped and the options are merged only once, so a change is linted in milliseconds. The report is
+ * rewritten after every change, and the violations that appear or go away are logged.
+ * @author ogolberg@vecna.com
+ */
+@Mojo(name = "watch",
+      threadSafe = true)
+public class JsHintWatchMojo extends AbstractJsHintMojo {
+  /**
+   * Number of milliseconds to wait for further changes after a file changes, so that editors that save several
+   * files (or the same file several times) in a burst trigger a single lint.
+   */
+  @Parameter(defaultValue = "200")
+  private long watchDelay;
+
+  private SourceScanner scanner;
+  private JsScript jsHint;
+  private LintEngineFactory engineFactory;
+  private LintEngine lintEngine;
+  private int engineFilesLinted;
+  private EngineRecycling engineRecycling;
+  private OptionsResolver optionsResolver;
+  private SourceReader sourceReader;
+  private MinifiedFilePolicy minifiedPolicy;
+  private ErrorCompactor compactor;
+  private WatchService watcher;
+  private final Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+  private final Map<String, List<JsHintError>> errors = new TreeMap<String, List<JsHintError>>();
+  private final Map<String, String> skipped = new TreeMap<String, String>();
+  private final Map<String, String> timedOut = new TreeMap<String, String>();
+
+  /**
+   * Watch a directory and the subdirectories that may contain source files
+   * @param dir the directory
+   * @return the source files in the directory
+   */
+  private Set<String> watch(Path dir) throws IOException {
+    final Path base = srcDirectory.toPath();
+    final Set<String> sourceFiles = new TreeSet<String>();
+    Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                       new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attrs) throws IOException {
+        if (!scanner.acceptDirectory(base.relativize(subdir).toString())) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        WatchKey key = subdir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                       StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirectories.put(key, subdir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        String relative = base.relativize(file).toString();
+        if (attrs.isRegularFile() && scanner.accept(relative)) {
+          sourceFiles.add(relative);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return sourceFiles;
+  }
+
+  /**
+   * Collect the source files affected by the events of a watch key
+   * @param key the watch key
+   * @param changed receives the affected source files
+   */
+  private void collectChanges(WatchKey key, Set<String> changed) throws IOException {
+    Path dir = watchedDirectories.get(key);
+    Path base = srcDirectory.toPath();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // events were lost, so look at everything
+        changed.addAll(errors.keySet());
+        changed.addAll(skipped.keySet());
+        changed.addAll(timedOut.keySet());
+        changed.addAll(watch(dir));
+        continue;
+      }
+
+      Path child = dir.resolve((Path) event.context());
+      String relative = base.relativize(child).toString();
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+        changed.addAll(watch(child));
+      } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+        // a deleted directory takes its source files with it
+        String prefix = relative + File.separator;
+        for (String srcFile : errors.keySet()) {
+          if (srcFile.startsWith(prefix)) {
+            changed.add(srcFile);
+          }
+        }
+        for (String srcFile : skipped.keySet()) {
+          if (srcFile.startsWith(prefix)) {
+            changed.add(srcFile);
+          }
+        }
+        for (String srcFile : timedOut.keySet()) {
+          if (srcFile.startsWith(prefix)) {
+            changed.add(srcFile);
+          }
+        }
+      }
+      if (scanner.accept(relative)) {
+        changed.add(relative);
+      }
+    }
+    if (!key.reset()) {
+      watchedDirectories.remove(key);
+    }
+  }
+
+  /**
+   * Lint a source file, or forget it if it no longer exists
+   * @param srcFile the source file
+   * @return the errors found in the file, or <code>null</code> if the file was not linted
+   * @throws IOException if the file cannot be read
+   * @throws MojoExecutionException if the options of the file are invalid
+   */
+  private List<JsHintError> lint(String srcFile) throws IOException, MojoExecutionException {
+    File file = new File(srcDirectory, srcFile);
+    if (!file.isFile()) {
+      skipped.remove(srcFile);
+      timedOut.remove(srcFile);
+      return null;
+    }
+
+    String source = sourceReader.read(file);
+    skipped.remove(srcFile);
+    timedOut.remove(srcFile);
+    JsHintOptions options = optionsResolver.resolve(srcFile);
+    String minified = minifiedPolicy == MinifiedFilePolicy.LINT ? null : MinifiedSourceDetector.detect(source);
+    if (minified != null && minifiedPolicy == MinifiedFilePolicy.SKIP) {
+      skipped.put(srcFile, minified);
+      return null;
+    } else if (minified != null && minifiedPolicy == MinifiedFilePolicy.TIMEOUT) {
+      try {
+        return compactor.compact(engineUsed(lintEngine.lint(srcFile, source, options, minifiedTimeout)));
+      } catch (TimeoutException e) {
+        skipped.put(srcFile, minified + ", JSHint " + e.getMessage());
+        resetEngine();
+        return null;
+      }
+    } else {
+      if (minified != null) {
+        getLog().warn(srcFile + " " + minified);
+      }
+      if (fileTimeout <= 0) {
+        return compactor.compact(engineUsed(lintEngine.lint(srcFile, source, options)));
+      }
+      try {
+        return compactor.compact(engineUsed(lintEngine.lint(srcFile, source, options, fileTimeout)));
+      } catch (TimeoutException e) {
+        timedOut.put(srcFile, "lint timed out, JSHint " + e.getMessage());
+        resetEngine();
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Close the engine and replace it with a freshly bootstrapped one. A call aborted midway may leave JSHint in an
+   * inconsistent state, so the engine is not reused after a timeout.
+   */
+  private void resetEngine() {
+    lintEngine.close();
+    lintEngine = engineFactory.bootstrap(jsHint);
+    engineFilesLinted = 0;
+  }
+
+  /**
+   * Count a file linted by the engine, and recycle the engine if it is due
+   * @param fileErrors the errors found in the file
+   * @return the errors found in the file
+   */
+  private List<JsHintError> engineUsed(List<JsHintError> fileErrors) {
+    String reason = engineRecycling.check(++engineFilesLinted);
+    if (reason != null) {
+      getLog().info("recycling the JSHint engine: " + reason);
+      resetEngine();
+    }
+    return fileErrors;
+  }
+
+  /**
+   * Key that identifies a violation regardless of where it moved within the file
+   */
+  private static String key(JsHintError error) {
+    return error.getReason() + '\n' + error.getEvidence();
+  }
+
+  /**
+   * Log the violations that appeared in or went away from a source file
+   * @param srcFile the source file
+   * @param before the previous errors of the file
+   * @param after the current errors of the file
+   */
+  private void logChanges(String srcFile, List<JsHintError> before, List<JsHintError> after) {
+    Multiset<String> remaining = HashMultiset.create();
+    for (JsHintError error : after) {
+      remaining.add(key(error));
+    }
+    for (JsHintError error : before) {
+      if (!remaining.remove(key(error))) {
+        getLog().info("fixed: " + error);
+      }
+    }
+
+    Multiset<String> previous = HashMultiset.create();
+    for (JsHintError error : before) {
+      previous.add(key(error));
+    }
+    for (JsHintError error : after) {
+      if (!previous.remove(key(error))) {
+        getLog().error(error.toString());
+      }
+    }
+
+    String reason = skipped.get(srcFile);
+    if (reason != null) {
+      getLog().warn("skipped " + srcFile + ": " + reason);
+    }
+    reason = timedOut.get(srcFile);
+    if (reason != null) {
+      getLog().warn(srcFile + ": " + reason);
+    }
+  }
+
+  /**
+   * Lint source files and update the results
+   * @param sourceFiles the source files
+   * @return the number of source files that were linted
+   */
+  private int lint(Set<String> sourceFiles) throws MojoExecutionException {
+    int linted = 0;
+    for (String srcFile : sourceFiles) {
+      List<JsHintError> fileErrors;
+      try {
+        fileErrors = lint(srcFile);
+      } catch (IOException e) {
+        // the editor may still be writing the file, it'll be linted again once it's done
+        getLog().warn("failed to read " + srcFile + ": " + e.getMessage());
+        continue;
+      }
+      List<JsHintError> previous = fileErrors == null ? errors.remove(srcFile) : errors.put(srcFile, fileErrors);
+      if (fileErrors != null) {
+        linted++;
+      }
+      logChanges(srcFile, previous == null ? Collections.<JsHintError>emptyList() : previous,
+                 fileErrors == null ? Collections.<JsHintError>emptyList() : fileErrors);
+    }
+    return linted;
+  }
+
+  /**
+   * Rewrite the report with the current results
+   */
+  private void writeReport() throws MojoExecutionException {
+    Set<String> sourceFiles = new TreeSet<String>(errors.keySet());
+    sourceFiles.addAll(skipped.keySet());
+    sourceFiles.addAll(timedOut.keySet());
+
+    OutputStream reportOut = openReport();
+    try {
+      reporter.start(reportOut);
+      for (String srcFile : sourceFiles) {
+        String reason = skipped.get(srcFile);
+        if (reason != null) {
+          reporter.skipFile(srcFile, reason);
+        } else if (timedOut.containsKey(srcFile)) {
+          reporter.timeoutFile(srcFile, timedOut.get(srcFile));
+        } else {
+          reporter.reportFile(srcFile, errors.get(srcFile));
+        }
+      }
+      reporter.finish();
+      reportOut.close();
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to write the report", e);
+    } finally {
+      IOUtils.closeQuietly(reportOut);
+    }
+  }
+
+  /**
+   * @return the total number of violations
+   */
+  private int countErrors() {
+    int count = 0;
+    for (List<JsHintError> fileErrors : errors.values()) {
+      count += fileErrors.size();
+    }
+    return count;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("skipping execution");
+      return;
+    }
+    if (!srcDirectory.isDirectory()) {
+      throw new MojoExecutionException(srcDirectory + " is not a directory");
+    }
+
+    jsHint = loadJsHint();
+    engineFactory = getEngineFactory();
+    Charset charset = getCharset();
+    minifiedPolicy = getMinifiedPolicy();
+    engineRecycling = getEngineRecycling();
+    compactor = new ErrorCompactor(maxEvidenceLength);
+    scanner = new SourceScanner(includes, excludes);
+    sourceReader = new SourceReader(charset);
+
+    try {
+      watcher = srcDirectory.toPath().getFileSystem().newWatchService();
+    } catch (IOException e) {
+      throw new MojoExecutionException("cannot watch " + srcDirectory, e);
+    }
+
+    try {
+      // the engines are bound to this thread, which does all the linting
+      optionsResolver = new OptionsResolver();
+      lintEngine = engineFactory.bootstrap(jsHint);
+
+      Set<String> sourceFiles = watch(srcDirectory.toPath());
+      lint(sourceFiles);
+      writeReport();
+      getLog().info("linted " + sourceFiles.size() + " files, " + countErrors() + " violations");
+      getLog().info("watching " + srcDirectory + " for changes, press Ctrl+C to stop");
+
+      while (true) {
+        WatchKey key = watcher.take();
+        Set<String> changed = new TreeSet<String>();
+        // wait for the burst of changes to end
+        while (key != null) {
+          collectChanges(key, changed);
+          key = watcher.poll(watchDelay, TimeUnit.MILLISECONDS);
+        }
+        if (changed.isEmpty()) {
+          continue;
+        }
+
+        long start = System.nanoTime();
+        int linted = lint(changed);
+        writeReport();
+        getLog().info("linted " + linted + " changed files in "
+                      + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, " + countErrors()
+                      + " violations");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to watch " + srcDirectory, e);
+    } finally {
+      IOUtils.closeQuietly(watcher);
+      IOUtils.closeQuietly(lintEngine);
+      IOUtils.closeQuietly(optionsResolver);
+    }
+  }
+}
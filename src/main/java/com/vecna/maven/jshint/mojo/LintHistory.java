@@ -0,0 +1,248 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * How long it took to lint each source file in previous runs, used to lint the files that take the longest first so
+ * that no worker is left alone with a large file at the end of a run.
+ * <p>
+ * A file that hasn't changed since it was last linted is expected to take as long as it did then (which is very
+ * little if its results came from the lint cache). A changed file is expected to take as long per character as it
+ * did the last time it was actually linted, and a file that was never linted as long per character as all the
+ * linted files together.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public class LintHistory {
+  private static final int VERSION = 1;
+
+  /**
+   * Nanoseconds per character to expect when there is no history, about what the interpreted JSHint takes on a large
+   * file.
+   */
+  private static final double DEFAULT_RATE = 10000;
+
+  /**
+   * The last run of a source file.
+   */
+  private static class Entry {
+    private final long m_size;
+    private final long m_modified;
+    private final long m_nanos;
+    // nanoseconds per character the last time the file was actually linted, 0 if unknown
+    private final double m_rate;
+
+    Entry(long size, long modified, long nanos, double rate) {
+      m_size = size;
+      m_modified = modified;
+      m_nanos = nanos;
+      m_rate = rate;
+    }
+  }
+
+  private final File m_file;
+  private final Map<String, Entry> m_entries;
+  private final Map<String, File> m_current = new HashMap<String, File>();
+
+  private LintHistory(File file, Map<String, Entry> entries) {
+    m_file = file;
+    m_entries = entries;
+  }
+
+  /**
+   * Load the history from a file. A missing or unreadable file results in an empty history.
+   * @param file history file
+   * @return the history
+   */
+  public static LintHistory load(File file) {
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    if (file.isFile()) {
+      try {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+          if (in.readInt() == VERSION) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+              entries.put(in.readUTF(), new Entry(in.readLong(), in.readLong(), in.readLong(), in.readDouble()));
+            }
+          }
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        // start over
+        entries.clear();
+      }
+    }
+    return new LintHistory(file, entries);
+  }
+
+  /**
+   * @return the number of nanoseconds per character over all the files that have been linted
+   */
+  private double getAverageRate() {
+    double nanos = 0;
+    long size = 0;
+    for (Entry entry : m_entries.values()) {
+      if (entry.m_rate > 0) {
+        nanos += entry.m_rate * entry.m_size;
+        size += entry.m_size;
+      }
+    }
+    return size == 0 ? DEFAULT_RATE : nanos / size;
+  }
+
+  /**
+   * Estimate how long it will take to lint source files. The files are remembered so that their timings can be
+   * recorded with {@link #record(String, long, boolean)}.
+   * @param baseDir directory the source files are relative to
+   * @param sourceFiles source files
+   * @return the expected lint time of each source file, in nanoseconds
+   */
+  public long[] estimate(File baseDir, String[] sourceFiles) {
+    double averageRate = getAverageRate();
+    long[] estimates = new long[sourceFiles.length];
+    for (int i = 0; i < sourceFiles.length; i++) {
+      File file = new File(baseDir, sourceFiles[i]);
+      m_current.put(sourceFiles[i], file);
+      long size = file.length();
+      Entry entry = m_entries.get(sourceFiles[i]);
+      if (entry != null && entry.m_size == size && entry.m_modified == file.lastModified()) {
+        estimates[i] = entry.m_nanos;
+      } else {
+        estimates[i] = (long) (size * (entry != null && entry.m_rate > 0 ? entry.m_rate : averageRate));
+      }
+    }
+    return estimates;
+  }
+
+  /**
+   * Record how long it took to lint a source file passed to {@link #estimate(File, String[])}
+   * @param srcFile source file
+   * @param nanos time it took to read and lint the file, in nanoseconds
+   * @param cached whether the results came from the lint cache
+   */
+  public void record(String srcFile, long nanos, boolean cached) {
+    File file = m_current.get(srcFile);
+    if (file == null) {
+      return;
+    }
+    long size = file.length();
+    double rate;
+    if (!cached) {
+      rate = nanos / (double) Math.max(size, 1);
+    } else {
+      Entry previous = m_entries.get(srcFile);
+      rate = previous == null ? 0 : previous.m_rate;
+    }
+    m_entries.put(srcFile, new Entry(size, file.lastModified(), nanos, rate));
+  }
+
+  /**
+   * Write the history back to its file, leaving out the files that no longer exist. The files that weren't linted
+   * in this run keep their history.
+   * @param baseDir directory the source files are relative to
+   * @throws IOException if the file cannot be written
+   */
+  public void save(File baseDir) throws IOException {
+    FileUtils.forceMkdir(m_file.getAbsoluteFile().getParentFile());
+    File tmp = new File(m_file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      out.writeInt(VERSION);
+      Map<String, Entry> entries = new HashMap<String, Entry>();
+      for (Map.Entry<String, Entry> keyval : m_entries.entrySet()) {
+        if (new File(baseDir, keyval.getKey()).isFile()) {
+          entries.put(keyval.getKey(), keyval.getValue());
+        }
+      }
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Entry> keyval : entries.entrySet()) {
+        Entry entry = keyval.getValue();
+        out.writeUTF(keyval.getKey());
+        out.writeLong(entry.m_size);
+        out.writeLong(entry.m_modified);
+        out.writeLong(entry.m_nanos);
+        out.writeDouble(entry.m_rate);
+      }
+    } finally {
+      out.close();
+    }
+    FileUtils.deleteQuietly(m_file);
+    FileUtils.moveFile(tmp, m_file);
+  }
+
+  /**
+   * @param estimates expected lint time of each file
+   * @return the indexes of the files, the longest expected first
+   */
+  public static int[] longestFirst(final long[] estimates) {
+    Integer[] order = new Integer[estimates.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Long.compare(estimates[b], estimates[a]);
+      }
+    });
+    int[] indexes = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      indexes[i] = order[i];
+    }
+    return indexes;
+  }
+
+  /**
+   * Work out how long it takes workers that each pick up the next file as soon as they are done with the previous one
+   * to lint all the files
+   * @param times lint time of each file
+   * @param order order in which the files are picked up
+   * @param workers number of workers
+   * @return the time the last worker finishes
+   */
+  public static long criticalPath(long[] times, int[] order, int workers) {
+    PriorityQueue<Long> finishTimes = new PriorityQueue<Long>(workers);
+    for (int i = 0; i < workers; i++) {
+      finishTimes.add(0L);
+    }
+    long criticalPath = 0;
+    for (int index : order) {
+      long finish = finishTimes.poll() + times[index];
+      criticalPath = Math.max(criticalPath, finish);
+      finishTimes.add(finish);
+    }
+    return criticalPath;
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Receives lint results as files are linted.
+ * @author ogolberg@vecna.com
+ */
+public interface LintListener {
+  /**
+   * Called once per source file, in the order of the source files, and never concurrently.
+   * @param srcFile name of the source file
+   * @param errors errors found in the file (may be empty)
+   * @throws MojoExecutionException to abort linting
+   */
+  public void fileLinted(String srcFile, List<JsHintError> errors) throws MojoExecutionException;
+
+  /**
+   * Called instead of {@link #fileLinted(String, List)} for a source file that was not linted.
+   * @param srcFile name of the source file
+   * @param reason why the file was not linted
+   * @throws MojoExecutionException to abort linting
+   */
+  public void fileSkipped(String srcFile, String reason) throws MojoExecutionException;
+
+  /**
+   * Called instead of {@link #fileLinted(String, List)} for a source file that JSHint was aborted on because it ran
+   * past the file timeout.
+   * @param srcFile name of the source file
+   * @param message how long JSHint ran before it was aborted
+   * @throws MojoExecutionException to abort linting
+   */
+  public void fileTimedOut(String srcFile, String message) throws MojoExecutionException;
+
+  /**
+   * Called right before {@link #fileLinted(String, List)} for a source file that deserves attention, e.g. because it
+   * looks minified.
+   * @param srcFile name of the source file
+   * @param warning what's special about the file
+   * @throws MojoExecutionException to abort linting
+   */
+  public void fileFlagged(String srcFile, String warning) throws MojoExecutionException;
+}
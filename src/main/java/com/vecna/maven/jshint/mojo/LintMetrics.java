@@ -0,0 +1,239 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Timings of a plugin execution: the time spent in each phase and the time it took to lint each file, along with the
+ * most heap the JVM used while they were recorded. Thread-safe, since files are linted and engines bootstrapped on
+ * the worker threads.
+ * @author ogolberg@vecna.com
+ */
+public class LintMetrics {
+  /**
+   * Timing of a single source file.
+   */
+  public static class FileMetrics {
+    private final String m_source;
+    private final long m_nanos;
+    private final int m_errorCount;
+    private final boolean m_cached;
+
+    FileMetrics(String source, long nanos, int errorCount, boolean cached) {
+      m_source = source;
+      m_nanos = nanos;
+      m_errorCount = errorCount;
+      m_cached = cached;
+    }
+
+    /**
+     * @return the source file
+     */
+    public String getSource() {
+      return m_source;
+    }
+
+    /**
+     * @return time it took to read and lint the file, in nanoseconds
+     */
+    public long getNanos() {
+      return m_nanos;
+    }
+
+    /**
+     * @return number of violations found in the file
+     */
+    public int getErrorCount() {
+      return m_errorCount;
+    }
+
+    /**
+     * @return whether the errors came from the lint cache
+     */
+    public boolean isCached() {
+      return m_cached;
+    }
+  }
+
+  private final Map<String, Long> m_phases = new LinkedHashMap<String, Long>();
+  private final List<FileMetrics> m_files = new ArrayList<FileMetrics>();
+  private int m_engineCount;
+  private long m_peakHeap;
+
+  private final MemoryMXBean m_memory = ManagementFactory.getMemoryMXBean();
+
+  /**
+   * Start measuring the heap used from now on.
+   */
+  public LintMetrics() {
+    sampleHeap();
+  }
+
+  /**
+   * Sample the heap used. The heap is sampled whenever something is recorded rather than taken from the peaks of the
+   * memory pools, which would have to be reset for every execution and are shared by everything in the JVM.
+   */
+  private synchronized void sampleHeap() {
+    m_peakHeap = Math.max(m_peakHeap, m_memory.getHeapMemoryUsage().getUsed());
+  }
+
+  /**
+   * Add time to a phase. Phases are reported in the order they are first recorded.
+   * @param phase name of the phase
+   * @param nanos time spent in the phase, in nanoseconds
+   */
+  public synchronized void phase(String phase, long nanos) {
+    Long total = m_phases.get(phase);
+    m_phases.put(phase, total == null ? nanos : total + nanos);
+    sampleHeap();
+  }
+
+  /**
+   * Record the bootstrap of a JSHint engine on a worker thread.
+   * @param nanos time it took to bootstrap the engine, in nanoseconds
+   */
+  public synchronized void engineBootstrapped(long nanos) {
+    m_engineCount++;
+    phase("bootstrap", nanos);
+  }
+
+  /**
+   * Record the timing of a source file.
+   * @param source the source file
+   * @param nanos time it took to read and lint the file, in nanoseconds
+   * @param errorCount number of violations found in the file
+   * @param cached whether the errors came from the lint cache
+   */
+  public synchronized void fileLinted(String source, long nanos, int errorCount, boolean cached) {
+    m_files.add(new FileMetrics(source, nanos, errorCount, cached));
+    sampleHeap();
+  }
+
+  /**
+   * @return the timings of the files, in the order they were linted
+   */
+  public synchronized List<FileMetrics> getFiles() {
+    return new ArrayList<FileMetrics>(m_files);
+  }
+
+  /**
+   * @return the most heap used whenever something was recorded since the metrics were created, in bytes
+   */
+  public synchronized long getPeakHeap() {
+    sampleHeap();
+    return m_peakHeap;
+  }
+
+  /**
+   * @param count maximum number of files to return
+   * @return the files that took the longest to lint, slowest first
+   */
+  public synchronized List<FileMetrics> getSlowestFiles(int count) {
+    List<FileMetrics> files = new ArrayList<FileMetrics>(m_files);
+    Collections.sort(files, new Comparator<FileMetrics>() {
+      @Override
+      public int compare(FileMetrics f1, FileMetrics f2) {
+        return Long.compare(f2.getNanos(), f1.getNanos());
+      }
+    });
+    return files.subList(0, Math.min(count, files.size()));
+  }
+
+  /**
+   * Format a time for humans and machines alike
+   * @param nanos time in nanoseconds
+   * @return the time in milliseconds
+   */
+  public static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  private static String quote(String str) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < ' ') {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  /**
+   * Write the metrics as JSON. Times are in milliseconds, the peak heap in bytes; files are listed in the order they
+   * were linted.
+   * @param file output file
+   * @param fileCount number of source files
+   * @param errorCount total number of violations
+   * @throws IOException if the file cannot be written
+   */
+  public synchronized void write(File file, int fileCount, int errorCount) throws IOException {
+    FileUtils.forceMkdir(file.getAbsoluteFile().getParentFile());
+    Writer out = Files.newWriter(file, Charsets.UTF_8);
+    try {
+      out.write("{\n");
+      out.write("  \"files\": " + fileCount + ",\n");
+      out.write("  \"errors\": " + errorCount + ",\n");
+      out.write("  \"engines\": " + m_engineCount + ",\n");
+      out.write("  \"peakHeap\": " + getPeakHeap() + ",\n");
+      out.write("  \"phases\": {");
+      String separator = "\n";
+      for (Entry<String, Long> phase : m_phases.entrySet()) {
+        out.write(separator + "    " + quote(phase.getKey()) + ": " + millis(phase.getValue()));
+        separator = ",\n";
+      }
+      out.write("\n  },\n");
+      out.write("  \"lint\": [");
+      separator = "\n";
+      for (FileMetrics metrics : m_files) {
+        out.write(separator + "    {\"file\": " + quote(metrics.getSource()) + ", \"time\": "
+                  + millis(metrics.getNanos()) + ", \"errors\": " + metrics.getErrorCount() + ", \"cached\": "
+                  + metrics.isCached() + "}");
+        separator = ",\n";
+      }
+      out.write("\n  ]\n");
+      out.write("}\n");
+      out.close();
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+package com.vecna.maven.jshint.mojo;
+
+/**
+ * What to do with source files that look minified or generated.
+ * @author ogolberg@vecna.com
+ */
+public enum MinifiedFilePolicy {
+  /**
+   * Lint them like any other file, without checking whether they look minified.
+   */
+  LINT,
+  /**
+   * Lint them, but log a warning.
+   */
+  WARN,
+  /**
+   * Don't lint them.
+   */
+  SKIP,
+  /**
+   * Lint them, but give up if JSHint takes longer than the timeout.
+   */
+  TIMEOUT
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+package com.vecna.maven.jshint.mojo;
+
+/**
+ * Recognizes minified and generated sources from their shape: minified code comes in very long lines with hardly
+ * any whitespace, generated code (e.g. inlined data) in very long lines. A single pass over the characters is
+ * much cheaper than linting.
+ * @author ogolberg@vecna.com
+ */
+final class MinifiedSourceDetector {
+  /**
+   * Smaller files are linted quickly no matter what they look like.
+   */
+  private static final int MIN_SIZE = 1024;
+
+  /**
+   * Hand-written code rarely has lines this long.
+   */
+  private static final int LONG_LINE = 1000;
+
+  /**
+   * Hand-written code is indented and spaced out; minified code has a few percent of whitespace.
+   */
+  private static final double MAX_WHITESPACE_RATIO = 0.1;
+
+  /**
+   * Generated code that keeps its whitespace still comes in few, long lines.
+   */
+  private static final int LONG_AVERAGE_LINE = 500;
+
+  private MinifiedSourceDetector() {
+  }
+
+  /**
+   * @param source contents of a source file
+   * @return why the source looks minified or generated, or <code>null</code> if it doesn't
+   */
+  static String detect(String source) {
+    int length = source.length();
+    if (length < MIN_SIZE) {
+      return null;
+    }
+
+    int lines = 0;
+    int longestLine = 0;
+    int lineStart = 0;
+    int whitespace = 0;
+    for (int i = 0; i < length; i++) {
+      char c = source.charAt(i);
+      if (c == '\n') {
+        longestLine = Math.max(longestLine, i - lineStart);
+        lineStart = i + 1;
+        lines++;
+        whitespace++;
+      } else if (c == ' ' || c == '\t' || c == '\r') {
+        whitespace++;
+      }
+    }
+    if (lineStart < length) {
+      // last line without a line break
+      longestLine = Math.max(longestLine, length - lineStart);
+      lines++;
+    }
+
+    if (longestLine < LONG_LINE) {
+      return null;
+    }
+    double whitespaceRatio = whitespace / (double) length;
+    if (whitespaceRatio < MAX_WHITESPACE_RATIO || length / lines >= LONG_AVERAGE_LINE) {
+      return "looks minified or generated (" + lines + " lines, longest line " + longestLine + " characters, "
+             + Math.round(whitespaceRatio * 100) + "% whitespace)";
+    }
+    return null;
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+package com.vecna.maven.jshint.mojo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Collects lint results that may complete in any order and hands them to a {@link LintListener} in the order of the
+ * source files. Results that complete ahead of a slower file wait until its result is in. Files are often linted
+ * well out of order (longest first, or in shards by forked JVMs), so once the waiting results hold more than
+ * {@link #DEFAULT_MAX_PENDING_ERRORS} errors, the errors of further results are spilled to a temporary run file and
+ * read back when their turn comes.
+ * @author ogolberg@vecna.com
+ */
+public class OrderedResults {
+  /**
+   * How many errors of waiting results are held in memory by default.
+   */
+  public static final int DEFAULT_MAX_PENDING_ERRORS = 10000;
+
+  /**
+   * The outcome of a single file: its errors, possibly with a warning, or the reason it was skipped or timed out.
+   * The errors of a spilled result are in the run file instead.
+   */
+  private static class Result {
+    private final List<JsHintError> m_errors;
+    private final String m_message;
+    private final boolean m_timedOut;
+    private final long m_offset;
+    private final int m_length;
+
+    Result(List<JsHintError> errors, String message, boolean timedOut) {
+      this(errors, message, timedOut, -1, 0);
+    }
+
+    Result(List<JsHintError> errors, String message, boolean timedOut, long offset, int length) {
+      m_errors = errors;
+      m_message = message;
+      m_timedOut = timedOut;
+      m_offset = offset;
+      m_length = length;
+    }
+
+    boolean isSpilled() {
+      return m_offset >= 0;
+    }
+  }
+
+  private final String[] m_sourceFiles;
+  private final LintListener m_listener;
+  private final int m_maxPendingErrors;
+  private final Map<Integer, Result> m_pending = new HashMap<Integer, Result>();
+  private int m_pendingErrors;
+  private File m_runFile;
+  private RandomAccessFile m_runStore;
+  private int m_spilled;
+  private int m_next;
+  private boolean m_closed;
+
+  /**
+   * @param sourceFiles source files, in report order
+   * @param listener listener to pass the results to
+   */
+  public OrderedResults(String[] sourceFiles, LintListener listener) {
+    this(sourceFiles, listener, DEFAULT_MAX_PENDING_ERRORS);
+  }
+
+  /**
+   * @param sourceFiles source files, in report order
+   * @param listener listener to pass the results to
+   * @param maxPendingErrors how many errors of waiting results to hold in memory before spilling them to disk
+   */
+  public OrderedResults(String[] sourceFiles, LintListener listener, int maxPendingErrors) {
+    m_sourceFiles = sourceFiles;
+    m_listener = listener;
+    m_maxPendingErrors = maxPendingErrors;
+  }
+
+  /**
+   * Record the result of a source file and pass on all results that are now in order.
+   * @param index index of the source file
+   * @param errors errors found in the file
+   * @throws MojoExecutionException if the listener fails
+   */
+  public void complete(int index, List<JsHintError> errors) throws MojoExecutionException {
+    complete(index, new Result(errors, null, false));
+  }
+
+  /**
+   * Record the result of a source file that deserves attention and pass on all results that are now in order.
+   * @param index index of the source file
+   * @param errors errors found in the file
+   * @param warning what's special about the file
+   * @throws MojoExecutionException if the listener fails
+   */
+  public void complete(int index, List<JsHintError> errors, String warning) throws MojoExecutionException {
+    complete(index, new Result(errors, warning, false));
+  }
+
+  /**
+   * Record that a source file was not linted and pass on all results that are now in order.
+   * @param index index of the source file
+   * @param reason why the file was not linted
+   * @throws MojoExecutionException if the listener fails
+   */
+  public void skip(int index, String reason) throws MojoExecutionException {
+    complete(index, new Result(null, reason, false));
+  }
+
+  /**
+   * Record that JSHint was aborted on a source file and pass on all results that are now in order.
+   * @param index index of the source file
+   * @param message how long JSHint ran before it was aborted
+   * @throws MojoExecutionException if the listener fails
+   */
+  public void timeOut(int index, String message) throws MojoExecutionException {
+    complete(index, new Result(null, message, true));
+  }
+
+  private synchronized void complete(int index, Result result) throws MojoExecutionException {
+    if (m_closed) {
+      return;
+    }
+    if (index != m_next && result.m_errors != null) {
+      if (m_pendingErrors + result.m_errors.size() > m_maxPendingErrors) {
+        result = spill(result);
+      } else {
+        m_pendingErrors += result.m_errors.size();
+      }
+    }
+    m_pending.put(index, result);
+    for (Result next = m_pending.remove(m_next); next != null; next = m_pending.remove(m_next)) {
+      String srcFile = m_sourceFiles[m_next];
+      if (next.m_timedOut) {
+        m_listener.fileTimedOut(srcFile, next.m_message);
+      } else if (next.m_errors == null && !next.isSpilled()) {
+        m_listener.fileSkipped(srcFile, next.m_message);
+      } else {
+        List<JsHintError> errors = next.m_errors;
+        if (next.isSpilled()) {
+          errors = unspill(next);
+        } else if (next != result) {
+          // every other result was waiting, and counted when it came in
+          m_pendingErrors -= errors.size();
+        }
+        if (next.m_message != null) {
+          m_listener.fileFlagged(srcFile, next.m_message);
+        }
+        m_listener.fileLinted(srcFile, errors);
+      }
+      m_next++;
+    }
+  }
+
+  /**
+   * Move the errors of a waiting result to the run file, creating it if necessary
+   * @return the result with its errors replaced by their location in the run file
+   */
+  private Result spill(Result result) throws MojoExecutionException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(result.m_errors.size());
+      for (JsHintError error : result.m_errors) {
+        error.write(out);
+      }
+      if (m_runStore == null) {
+        m_runFile = File.createTempFile("jshint", ".pending");
+        m_runStore = new RandomAccessFile(m_runFile, "rw");
+      }
+      long offset = m_runStore.length();
+      m_runStore.seek(offset);
+      m_runStore.write(bytes.toByteArray());
+      m_spilled++;
+      return new Result(null, result.m_message, false, offset, bytes.size());
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to spill lint results to " + m_runFile, e);
+    }
+  }
+
+  /**
+   * Read the errors of a spilled result back from the run file. The run file is emptied once no spilled results
+   * are left.
+   */
+  private List<JsHintError> unspill(Result result) throws MojoExecutionException {
+    try {
+      byte[] bytes = new byte[result.m_length];
+      m_runStore.seek(result.m_offset);
+      m_runStore.readFully(bytes);
+      if (--m_spilled == 0) {
+        m_runStore.setLength(0);
+      }
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      int errorCount = in.readInt();
+      List<JsHintError> errors = new ArrayList<JsHintError>(errorCount);
+      for (int i = 0; i < errorCount; i++) {
+        errors.add(JsHintError.read(in));
+      }
+      return errors;
+    } catch (IOException e) {
+      throw new MojoExecutionException("failed to read spilled lint results back from " + m_runFile, e);
+    }
+  }
+
+  /**
+   * Stop passing results to the listener and delete the run file. Results completed afterwards are dropped.
+   */
+  public synchronized void close() {
+    m_closed = true;
+    m_pending.clear();
+    m_pendingErrors = 0;
+    if (m_runStore != null) {
+      IOUtils.closeQuietly(m_runStore);
+      FileUtils.deleteQuietly(m_runFile);
+      m_runStore = null;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An Ant-style path pattern (<code>**</code> matches any number of directories, <code>*</code> and <code>?</code>
+ * match within a path segment), compiled once so that paths can be matched segment by segment without re-parsing the
+ * pattern. Matches the same paths as plexus <code>SelectorUtils.matchPath()</code> (case-sensitive).
+ * @author ogolberg@vecna.com
+ */
+final class PathPattern {
+  private static final String ANY_DIRS = "**";
+
+  /**
+   * Segments of the pattern: {@link #ANY_DIRS}, a literal {@link String} or a compiled wildcard {@link Pattern}.
+   */
+  private final Object[] m_segments;
+  private final boolean m_absolute;
+
+  /**
+   * Compile a pattern. As with <code>DirectoryScanner</code>, both '/' and '\' are separators and a pattern that
+   * ends with a separator matches everything under the directory.
+   * @param pattern the pattern
+   */
+  PathPattern(String pattern) {
+    String normalized = pattern.trim().replace('\\', '/');
+    if (normalized.endsWith("/")) {
+      normalized += ANY_DIRS;
+    }
+    m_absolute = normalized.startsWith("/");
+
+    List<Object> segments = new ArrayList<Object>();
+    for (String segment : normalized.split("/")) {
+      if (segment.isEmpty()) {
+        continue;
+      } else if (ANY_DIRS.equals(segment)) {
+        // consecutive ** are equivalent to a single one
+        if (segments.isEmpty() || segments.get(segments.size() - 1) != ANY_DIRS) {
+          segments.add(ANY_DIRS);
+        }
+      } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+        segments.add(compileWildcards(segment));
+      } else {
+        segments.add(segment);
+      }
+    }
+    m_segments = segments.toArray();
+  }
+
+  private static Pattern compileWildcards(String segment) {
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    for (char c : segment.toCharArray()) {
+      if (c == '*' || c == '?') {
+        if (literal.length() > 0) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '*' ? ".*" : ".");
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  private static boolean matchSegment(Object segment, String name) {
+    if (segment instanceof Pattern) {
+      return ((Pattern) segment).matcher(name).matches();
+    } else {
+      return segment.equals(name);
+    }
+  }
+
+  /**
+   * Split a relative path into segments
+   * @param path a path relative to the scanned directory, with the platform separator
+   * @return the segments
+   */
+  static String[] split(String path) {
+    return path.split(Pattern.quote(File.separator));
+  }
+
+  /**
+   * @param path segments of a relative path
+   * @return whether the path matches the pattern
+   */
+  boolean matches(String[] path) {
+    return !m_absolute && matches(0, m_segments.length, path, 0);
+  }
+
+  /**
+   * Match pattern segments <code>[segment, end)</code> against path segments <code>[index, path.length)</code>
+   */
+  private boolean matches(int segment, int end, String[] path, int index) {
+    for (; segment < end; segment++, index++) {
+      if (m_segments[segment] == ANY_DIRS) {
+        if (segment == end - 1) {
+          return true;
+        }
+        for (int rest = index; rest <= path.length; rest++) {
+          if (matches(segment + 1, end, path, rest)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      if (index >= path.length || !matchSegment(m_segments[segment], path[index])) {
+        return false;
+      }
+    }
+    return index == path.length;
+  }
+
+  /**
+   * @param dir segments of a relative directory path
+   * @return whether the pattern may match something under the directory
+   */
+  boolean couldMatchUnder(String[] dir) {
+    if (m_absolute) {
+      return false;
+    }
+    for (int i = 0; i < dir.length; i++) {
+      if (i >= m_segments.length) {
+        return false;
+      }
+      if (m_segments[i] == ANY_DIRS) {
+        return true;
+      }
+      if (!matchSegment(m_segments[i], dir[i])) {
+        return false;
+      }
+    }
+    return m_segments.length > dir.length;
+  }
+
+  /**
+   * @param dir segments of a relative directory path
+   * @return whether the pattern matches everything under the directory
+   */
+  boolean matchesAllUnder(String[] dir) {
+    int last = m_segments.length - 1;
+    if (m_absolute || last < 0 || m_segments[last] != ANY_DIRS) {
+      return false;
+    }
+    // the pattern is "prefix/**": everything under the directory matches if the prefix matches the directory
+    return last == 0 || matches(0, last, dir, 0);
+  }
+}
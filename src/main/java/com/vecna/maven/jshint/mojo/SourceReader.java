@@ -0,0 +1,141 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads whole source files into strings with as little copying as possible.
+ * Large files are memory-mapped; smaller files are read into a buffer that is reused from file to file. The bytes are
+ * decoded into a reusable character buffer, so the only per-file allocation of a file below the memory-mapping size
+ * is the resulting string; larger files are decoded into a buffer of their own, so that a single huge file doesn't
+ * pin its size in the reader for good.
+ * Not thread-safe: each thread needs its own reader.
+ * @author ogolberg@vecna.com
+ */
+public class SourceReader {
+  /**
+   * Files of at least this size are memory-mapped instead of read into the buffer.
+   */
+  private static final long MAP_THRESHOLD = 1024 * 1024;
+
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Largest character buffer kept for the next file.
+   */
+  private static final int MAX_REUSED_CHARS = (int) MAP_THRESHOLD;
+
+  private final CharsetDecoder m_decoder;
+  private ByteBuffer m_bytes = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private CharBuffer m_chars = CharBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+  /**
+   * @param charset encoding of the source files
+   */
+  public SourceReader(Charset charset) {
+    // same as new String(bytes, charset)
+    m_decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Read a source file
+   * @param file the file
+   * @return contents of the file
+   * @throws IOException if the file cannot be read
+   */
+  public String read(File file) throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      long size = channel.size();
+      ByteBuffer bytes;
+      if (size >= MAP_THRESHOLD) {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        if (m_bytes.capacity() < size) {
+          m_bytes = ByteBuffer.allocate((int) size);
+        }
+        m_bytes.clear();
+        while (m_bytes.hasRemaining() && channel.read(m_bytes) >= 0) {
+          continue;
+        }
+        m_bytes.flip();
+        bytes = m_bytes;
+      }
+      return decode(bytes);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Decode bytes into a string, growing the character buffer as needed
+   */
+  private String decode(ByteBuffer bytes) throws CharacterCodingException {
+    int expected = (int) (bytes.remaining() * (double) m_decoder.averageCharsPerByte()) + 1;
+    CharBuffer chars;
+    if (expected > MAX_REUSED_CHARS) {
+      chars = CharBuffer.allocate(expected);
+    } else {
+      if (m_chars.capacity() < expected) {
+        m_chars = CharBuffer.allocate(expected);
+      }
+      chars = m_chars;
+    }
+    chars.clear();
+    m_decoder.reset();
+
+    CoderResult result;
+    do {
+      result = m_decoder.decode(bytes, chars, true);
+      if (result.isOverflow()) {
+        chars = grow(chars);
+      } else if (result.isError()) {
+        result.throwException();
+      }
+    } while (!result.isUnderflow());
+
+    while (m_decoder.flush(chars).isOverflow()) {
+      chars = grow(chars);
+    }
+
+    if (chars.capacity() <= MAX_REUSED_CHARS) {
+      m_chars = chars;
+    }
+    chars.flip();
+    return chars.toString();
+  }
+
+  private static CharBuffer grow(CharBuffer chars) {
+    CharBuffer grown = CharBuffer.allocate(chars.capacity() * 2);
+    chars.flip();
+    grown.put(chars);
+    return grown;
+  }
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds source files by include/exclude patterns, with the same semantics as plexus <code>DirectoryScanner</code>.
+ * The patterns are compiled once, and directories are skipped entirely if no include can match anything under them or
+ * an exclude matches everything under them (e.g. <code>**&#47;node_modules/**</code>).
+ * @author ogolberg@vecna.com
+ */
+public class SourceScanner {
+  private final List<PathPattern> m_includes = new ArrayList<PathPattern>();
+  private final List<PathPattern> m_excludes = new ArrayList<PathPattern>();
+
+  /**
+   * @param includes patterns of the files to include (<code>null</code> to include all files)
+   * @param excludes patterns of the files to exclude (may be <code>null</code>)
+   */
+  public SourceScanner(String[] includes, String[] excludes) {
+    if (includes == null) {
+      m_includes.add(new PathPattern("**"));
+    } else {
+      for (String include : includes) {
+        m_includes.add(new PathPattern(include));
+      }
+    }
+    if (excludes != null) {
+      for (String exclude : excludes) {
+        m_excludes.add(new PathPattern(exclude));
+      }
+    }
+  }
+
+  /**
+   * @param path a path relative to the scanned directory, with the platform separator
+   * @return whether the path is included and not excluded
+   */
+  public boolean accept(String path) {
+    return accept(PathPattern.split(path));
+  }
+
+  /**
+   * @param path a directory path relative to the scanned directory, with the platform separator
+   * @return whether the directory may contain accepted files
+   */
+  public boolean acceptDirectory(String path) {
+    return enter(path.isEmpty() ? new String[0] : PathPattern.split(path));
+  }
+
+  private boolean accept(String[] path) {
+    return matchesAny(m_includes, path) && !matchesAny(m_excludes, path);
+  }
+
+  private static boolean matchesAny(List<PathPattern> patterns, String[] path) {
+    for (PathPattern pattern : patterns) {
+      if (pattern.matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param dir segments of a directory path relative to the scanned directory
+   * @return whether the directory may contain accepted files
+   */
+  private boolean enter(String[] dir) {
+    if (dir.length == 0) {
+      return true;
+    }
+    for (PathPattern exclude : m_excludes) {
+      if (exclude.matchesAllUnder(dir)) {
+        return false;
+      }
+    }
+    for (PathPattern include : m_includes) {
+      if (include.couldMatchUnder(dir)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String[] segments(Path relative) {
+    if (relative.toString().isEmpty()) {
+      return new String[0];
+    }
+    String[] segments = new String[relative.getNameCount()];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = relative.getName(i).toString();
+    }
+    return segments;
+  }
+
+  /**
+   * Find the source files in a directory
+   * @param baseDir the directory
+   * @param parallel whether to scan subdirectories in parallel
+   * @return paths of the accepted files relative to the directory, with the platform separator, in lexical order
+   * @throws IOException if the directory cannot be scanned
+   */
+  public String[] scan(File baseDir, boolean parallel) throws IOException {
+    if (!baseDir.isDirectory()) {
+      return new String[0];
+    }
+    Path base = baseDir.toPath();
+
+    List<String> files;
+    if (parallel) {
+      ForkJoinPool pool = new ForkJoinPool();
+      try {
+        files = pool.invoke(new ScanTask(base, base));
+      } finally {
+        pool.shutdown();
+      }
+    } else {
+      files = walk(base);
+    }
+
+    Collections.sort(files);
+    return files.toArray(new String[files.size()]);
+  }
+
+  /**
+   * Scan sequentially
+   */
+  private List<String> walk(final Path base) throws IOException {
+    final List<String> files = new ArrayList<String>();
+    Files.walkFileTree(base, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                       new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        return enter(segments(base.relativize(dir))) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile()) {
+          Path relative = base.relativize(file);
+          if (accept(segments(relative))) {
+            files.add(relative.toString());
+          }
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        // unreadable directories and links to a parent directory are skipped, like DirectoryScanner does
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return files;
+  }
+
+  /**
+   * Scans a directory, forking a task per subdirectory.
+   */
+  private class ScanTask extends RecursiveTask<List<String>> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path m_base;
+    private final transient Path m_dir;
+
+    ScanTask(Path base, Path dir) {
+      m_base = base;
+      m_dir = dir;
+    }
+
+    @Override
+    protected List<String> compute() {
+      List<String> files = new ArrayList<String>();
+      List<ScanTask> subtasks = new ArrayList<ScanTask>();
+      try {
+        DirectoryStream<Path> entries = Files.newDirectoryStream(m_dir);
+        try {
+          for (Path entry : entries) {
+            Path relative = m_base.relativize(entry);
+            if (Files.isDirectory(entry)) {
+              if (enter(segments(relative)) && !isLoop(entry)) {
+                subtasks.add(new ScanTask(m_base, entry));
+              }
+            } else if (Files.isRegularFile(entry) && accept(segments(relative))) {
+              files.add(relative.toString());
+            }
+          }
+        } finally {
+          entries.close();
+        }
+      } catch (IOException e) {
+        // unreadable directories are skipped, like DirectoryScanner does
+        return files;
+      }
+
+      invokeAll(subtasks);
+      for (ScanTask subtask : subtasks) {
+        files.addAll(subtask.join());
+      }
+      return files;
+    }
+
+    /**
+     * @return whether the directory is a link to one of its ancestors
+     */
+    private boolean isLoop(Path dir) throws IOException {
+      if (!Files.isSymbolicLink(dir)) {
+        return false;
+      }
+      Path target = dir.toRealPath();
+      for (Path parent = dir.getParent(); parent != null; parent = parent.getParent()) {
+        if (Files.isSameFile(parent, target)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
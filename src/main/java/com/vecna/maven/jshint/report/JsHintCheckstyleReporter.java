@@ -33,45 +33,141 @@ import com.vecna.maven.jshint.mojo.JsHintError;
 
 /**
  * Creates a Checkstyle-compatible report of JsHint violations.
+ * Only files with violations are listed in the report.
  * @author ogolberg@vecna.com
  */
 public class JsHintCheckstyleReporter implements JsHintReporter {
+  /**
+   * Checkstyle "source" (i.e. check name) of the entry of a file that JSHint timed out on.
+   */
+  public static final String TIMEOUT_SOURCE = "jshint.timeout";
+
+  private XMLStreamWriter m_writer;
+
   /**
    * {@inheritDoc}
    */
   @Override
   public void report(Multimap<String, JsHintError> errors, OutputStream output) throws MojoExecutionException {
+    start(output);
+    for (Entry<String, Collection<JsHintError>> entry : errors.asMap().entrySet()) {
+      reportFile(entry.getKey(), entry.getValue());
+    }
+    finish();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void start(OutputStream output) throws MojoExecutionException {
     XMLOutputFactory outFactory = XMLOutputFactory.newInstance();
 
     try {
-      XMLStreamWriter w = new IndentingXMLStreamWriter(outFactory.createXMLStreamWriter(output));
+      m_writer = new IndentingXMLStreamWriter(outFactory.createXMLStreamWriter(output));
 
-      w.writeStartDocument();
-      w.writeStartElement("checkstyle");
-      w.writeAttribute("version", "4.3");
+      m_writer.writeStartDocument();
+      m_writer.writeStartElement("checkstyle");
+      m_writer.writeAttribute("version", "4.3");
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("failed to write the violation report", e);
+    }
+  }
 
-      for (Entry<String, Collection<JsHintError>> entry : errors.asMap().entrySet()) {
-        w.writeStartElement("file");
-        w.writeAttribute("name", entry.getKey());
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void reportFile(String source, Collection<JsHintError> errors) throws MojoExecutionException {
+    if (errors.isEmpty()) {
+      return;
+    }
 
-        for (JsHintError error : entry.getValue()) {
-          w.writeStartElement("error");
+    try {
+      m_writer.writeStartElement("file");
+      m_writer.writeAttribute("name", source);
 
-          w.writeAttribute("line", String.valueOf(error.getLine()));
-          w.writeAttribute("column", String.valueOf(error.getCharacter()));
-          w.writeAttribute("severity", "error");
-          w.writeAttribute("message", error.getReason());
+      for (JsHintError error : errors) {
+        m_writer.writeStartElement("error");
 
-          w.writeEndElement();
-        }
+        m_writer.writeAttribute("line", String.valueOf(error.getLine()));
+        m_writer.writeAttribute("column", String.valueOf(error.getCharacter()));
+        m_writer.writeAttribute("severity", "error");
+        m_writer.writeAttribute("message", error.getReason());
 
-        w.writeEndElement();
+        m_writer.writeEndElement();
       }
-      w.writeEndElement();
-      w.writeEndDocument();
-      w.close();
+
+      m_writer.writeEndElement();
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("failed to write the violation report", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * Checkstyle reports have no notion of a skipped file (an empty file element would mean the file is clean), so this
+   * is recorded in a comment.
+   */
+  @Override
+  public void skipFile(String source, String reason) throws MojoExecutionException {
+    try {
+      // "--" is not allowed in XML comments
+      m_writer.writeComment((" skipped " + source + ": " + reason + " ").replace("--", "- -"));
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("failed to write the violation report", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * Recorded as a warning, rather than an error, at the start of the file, so that it stands out from the violations
+   * and from clean files.
+   */
+  @Override
+  public void timeoutFile(String source, String message) throws MojoExecutionException {
+    try {
+      m_writer.writeStartElement("file");
+      m_writer.writeAttribute("name", source);
+      m_writer.writeStartElement("error");
+      m_writer.writeAttribute("line", "1");
+      m_writer.writeAttribute("column", "1");
+      m_writer.writeAttribute("severity", "warning");
+      m_writer.writeAttribute("message", message);
+      m_writer.writeAttribute("source", TIMEOUT_SOURCE);
+      m_writer.writeEndElement();
+      m_writer.writeEndElement();
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("failed to write the violation report", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * Checkstyle reports have no notion of an incomplete report, so this is recorded in a comment.
+   */
+  @Override
+  public void truncate(int skippedFiles) throws MojoExecutionException {
+    try {
+      m_writer.writeComment(" truncated: linting stopped early, " + skippedFiles + " files were not linted ");
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("failed to write the violation report", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void finish() throws MojoExecutionException {
+    try {
+      m_writer.writeEndElement();
+      m_writer.writeEndDocument();
+      m_writer.close();
     } catch (XMLStreamException e) {
       throw new MojoExecutionException("failed to write the violation report", e);
+    } finally {
+      m_writer = null;
     }
   }
 }
@@ -17,6 +17,7 @@
 package com.vecna.maven.jshint.report;
 
 import java.io.OutputStream;
+import java.util.Collection;
 
 import org.apache.maven.plugin.MojoExecutionException;
 
@@ -25,6 +26,13 @@ import com.vecna.maven.jshint.mojo.JsHintError;
 
 /**
  * API for writing JsHint reports.
+ * <p>
+ * Reports can be written all at once with {@link #report(Multimap, OutputStream)} or streamed as files are linted:
+ * {@link #start(OutputStream)}, then {@link #reportFile(String, Collection)} once per file, then {@link #finish()}.
+ * Files that were not linted at all can be listed with {@link #skipFile(String, String)}, files that JSHint gave up on
+ * with {@link #timeoutFile(String, String)}, and a streamed report can be marked as incomplete with
+ * {@link #truncate(int)} before it is finished.
+ * </p>
  * @author ogolberg@vecna.com
  */
 public interface JsHintReporter {
@@ -35,4 +43,49 @@ public interface JsHintReporter {
    * @throws MojoExecutionException if the report cannot be generated/written
    */
   public void report(Multimap<String, JsHintError> errors, OutputStream output) throws MojoExecutionException;
+
+  /**
+   * Start streaming a report
+   * @param output output stream
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  public void start(OutputStream output) throws MojoExecutionException;
+
+  /**
+   * Add the errors of a single file to the report started with {@link #start(OutputStream)}
+   * @param source name of the source file
+   * @param errors errors found in the file (may be empty)
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  public void reportFile(String source, Collection<JsHintError> errors) throws MojoExecutionException;
+
+  /**
+   * Note in the report started with {@link #start(OutputStream)} that a file was not linted
+   * @param source name of the source file
+   * @param reason why the file was not linted
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  public void skipFile(String source, String reason) throws MojoExecutionException;
+
+  /**
+   * Note in the report started with {@link #start(OutputStream)} that linting a file was aborted because it took too
+   * long
+   * @param source name of the source file
+   * @param message how long JSHint ran before it was aborted
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  public void timeoutFile(String source, String message) throws MojoExecutionException;
+
+  /**
+   * Mark the report started with {@link #start(OutputStream)} as incomplete because linting stopped early.
+   * @param skippedFiles number of source files that were not linted
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  public void truncate(int skippedFiles) throws MojoExecutionException;
+
+  /**
+   * Complete the report started with {@link #start(OutputStream)}. Does not close the output stream.
+   * @throws MojoExecutionException if the report cannot be written
+   */
+  public void finish() throws MojoExecutionException;
 }
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.rhino;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Parser;
+import org.mozilla.javascript.ast.ArrayLiteral;
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.NodeVisitor;
+import org.mozilla.javascript.ast.NumberLiteral;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+
+/**
+ * Compiles a script to JVM classes at build time, like the Rhino <code>jsc</code> tool with
+ * <code>-opt 9 -nosource -observe-instruction-count</code>. The <code>jsc</code> of Rhino 1.7R4 rejects
+ * <code>-observe-instruction-count</code>, which the compiled classes need so that {@link JsEngine} can time them out.
+ * <p>
+ * The class compiler turns each element of an array literal into a constant of the class, so the Unicode tables
+ * bundled with JSHint overflow the constant pool. Large array literals of numbers are therefore compiled as
+ * <code>JSON.parse</code> calls on strings, which evaluate to the same arrays.
+ * </p>
+ * <p>
+ * Arguments: script file, encoding, output directory, fully qualified class name.
+ * Exits with status 1 if the script cannot be compiled.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public final class JsCompiler {
+  /**
+   * Array literals of at least this many numbers are compiled as strings.
+   */
+  private static final int MIN_PARSED_ARRAY = 1000;
+
+  /**
+   * Maximum length of a string constant, well below the 64K bytes of a class file constant.
+   */
+  private static final int MAX_STRING_LENGTH = 60000;
+
+  private JsCompiler() {
+  }
+
+  /**
+   * @param number a number literal
+   * @return the number in JSON
+   */
+  private static String toJson(NumberLiteral number) {
+    double value = number.getNumber();
+    if (value == Math.rint(value) && Math.abs(value) < 1L << 53) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  /**
+   * @param array an array literal of numbers
+   * @return an expression that evaluates to the same array, with the numbers in string constants
+   */
+  private static String toParsedArray(ArrayLiteral array) {
+    List<String> chunks = new ArrayList<String>();
+    StringBuilder chunk = new StringBuilder();
+    for (AstNode element : array.getElements()) {
+      String json = toJson((NumberLiteral) element);
+      if (chunk.length() + json.length() > MAX_STRING_LENGTH) {
+        chunks.add(chunk.toString());
+        chunk.setLength(0);
+      }
+      chunk.append(chunk.length() == 0 ? "" : ",").append(json);
+    }
+    chunks.add(chunk.toString());
+
+    StringBuilder expression = new StringBuilder("[].concat(");
+    for (int i = 0; i < chunks.size(); i++) {
+      expression.append(i == 0 ? "" : ", ").append("JSON.parse(\"[").append(chunks.get(i)).append("]\")");
+    }
+    return expression.append(')').toString();
+  }
+
+  /**
+   * Replace the large array literals of numbers in a script with equivalent <code>JSON.parse</code> calls
+   * @param source the script
+   * @param name name of the script
+   * @param env compiler environment
+   * @return the script with the array literals replaced, on the same lines as before
+   */
+  static String parseLargeArrays(String source, String name, CompilerEnvirons env) {
+    final List<ArrayLiteral> arrays = new ArrayList<ArrayLiteral>();
+    new Parser(env).parse(source, name, 1).visit(new NodeVisitor() {
+      @Override
+      public boolean visit(AstNode node) {
+        if (node instanceof ArrayLiteral) {
+          List<AstNode> elements = ((ArrayLiteral) node).getElements();
+          if (elements.size() >= MIN_PARSED_ARRAY) {
+            for (AstNode element : elements) {
+              if (!(element instanceof NumberLiteral)) {
+                return true;
+              }
+            }
+            arrays.add((ArrayLiteral) node);
+            return false;
+          }
+        }
+        return true;
+      }
+    });
+
+    // the arrays are visited in the order they appear in the source
+    StringBuilder result = new StringBuilder(source.length());
+    int copied = 0;
+    for (ArrayLiteral array : arrays) {
+      int start = array.getAbsolutePosition();
+      int end = start + array.getLength();
+      result.append(source, copied, start).append(toParsedArray(array));
+      // keep the rest of the script on its original lines
+      for (int i = start; i < end; i++) {
+        if (source.charAt(i) == '\n') {
+          result.append('\n');
+        }
+      }
+      copied = end;
+    }
+    return result.append(source, copied, source.length()).toString();
+  }
+
+  /**
+   * Compile a script
+   * @param args see the class description
+   * @throws IOException if the script cannot be read or the classes cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    File script = new File(args[0]);
+    String source = FileUtils.readFileToString(script, args[1]);
+    File outputDirectory = new File(args[2]);
+    String className = args[3];
+
+    CompilerEnvirons env = new CompilerEnvirons();
+    env.setOptimizationLevel(9);
+    env.setGeneratingSource(false);
+    env.setGenerateObserverCount(true);
+
+    Object[] classes;
+    try {
+      String compiled = parseLargeArrays(source, script.getPath(), env);
+      classes = new ClassCompiler(env).compileToClassFiles(compiled, script.getPath(), 1, className);
+    } catch (RuntimeException e) {
+      System.err.println("cannot compile " + script + ": " + e);
+      System.exit(1);
+      return;
+    }
+
+    // pairs of class names and bytecode
+    for (int i = 0; i < classes.length; i += 2) {
+      File classFile = new File(outputDirectory, ((String) classes[i]).replace('.', File.separatorChar) + ".class");
+      FileUtils.writeByteArrayToFile(classFile, (byte[]) classes[i + 1]);
+    }
+  }
+}
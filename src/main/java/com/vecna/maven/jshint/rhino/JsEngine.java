@@ -16,33 +16,141 @@
 
 package com.vecna.maven.jshint.rhino;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.NativeJSON;
 import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.serialize.ScriptableInputStream;
+import org.mozilla.javascript.serialize.ScriptableOutputStream;
 
 /**
  * A convenience wrapper around the Rhino JS engine.
+ * An engine enters a Rhino context on the thread that creates it and can only be used on that thread. The context is
+ * exited when the engine is closed; engines created on the same thread share the context.
  * @author ogolberg@vecna.com
  */
-public class JsEngine {
+public class JsEngine implements Closeable {
+  /**
+   * Number of instructions between deadline checks of a call with a timeout.
+   */
+  private static final int INSTRUCTION_THRESHOLD = 10000;
+
+  private static final Object DEADLINE = new Object();
+
+  /**
+   * Enforces the deadline of a call with a timeout. Only code compiled with instruction counting (the interpreter,
+   * or classes precompiled with <code>-observe-instruction-count</code>) reports instructions.
+   */
+  private static final ContextFactory CONTEXT_FACTORY = new ContextFactory() {
+    @Override
+    protected void observeInstructionCount(Context cx, int instructionCount) {
+      Long deadline = (Long) cx.getThreadLocal(DEADLINE);
+      if (deadline != null && System.nanoTime() - deadline > 0) {
+        throw new DeadlineError();
+      }
+    }
+  };
+
+  /**
+   * Aborts a call that has run past its deadline. An {@link Error} can't be caught by the script.
+   */
+  private static class DeadlineError extends Error {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private static ScriptableObject s_sharedScope;
+
   private final Context m_context;
   private final Scriptable m_scope;
+  private boolean m_closed;
 
   /**
-   * Initialize a new engine
+   * @return a sealed scope with the standard objects, shared by all engines
    */
-  public JsEngine() {
-    m_context = Context.enter();
+  private static synchronized ScriptableObject sharedScope(Context context) {
+    if (s_sharedScope == null) {
+      s_sharedScope = context.initStandardObjects(null, true);
+    }
+    return s_sharedScope;
+  }
+
+  /**
+   * @return a new context, bound to the current thread
+   */
+  private static Context enterContext() {
+    Context context = CONTEXT_FACTORY.enterContext();
     // temporary - until https://github.com/jshint/jshint/issues/1333 is fixed
-    m_context.setOptimizationLevel(-1);
-    m_scope = m_context.initStandardObjects();
+    context.setOptimizationLevel(-1);
+    return context;
+  }
+
+  /**
+   * Initialize a new engine. The global scope of the engine is a lightweight child of a sealed scope
+   * with the standard objects that is shared by all engines.
+   */
+  public JsEngine() {
+    m_context = enterContext();
+
+    ScriptableObject sharedScope = sharedScope(m_context);
+    m_scope = m_context.newObject(sharedScope);
+    m_scope.setPrototype(sharedScope);
+    m_scope.setParentScope(null);
+  }
+
+  private JsEngine(Context context, Scriptable scope) {
+    m_context = context;
+    m_scope = scope;
+  }
+
+  /**
+   * Initialize an engine with a global scope previously written with {@link #writeScope(OutputStream)}.
+   * @param in input
+   * @return the engine
+   * @throws IOException if the scope cannot be read
+   */
+  public static JsEngine readScope(InputStream in) throws IOException {
+    Context context = enterContext();
+    boolean read = false;
+    try {
+      ScriptableObject sharedScope = sharedScope(context);
+      Object scope = new ScriptableInputStream(in, sharedScope).readObject();
+      if (!(scope instanceof Scriptable)) {
+        throw new IOException("not a scope");
+      }
+      read = true;
+      return new JsEngine(context, (Scriptable) scope);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("the scope refers to a missing class", e);
+    } finally {
+      if (!read) {
+        Context.exit();
+      }
+    }
+  }
+
+  /**
+   * Serialize the global scope, along with everything defined in it. The shared standard objects are written as
+   * references and resolved against the shared scope when the scope is read back.
+   * @param out output
+   * @throws IOException if the scope cannot be written
+   */
+  public void writeScope(OutputStream out) throws IOException {
+    ScriptableOutputStream scopeOut = new ScriptableOutputStream(out, sharedScope(m_context));
+    scopeOut.writeObject(m_scope);
+    scopeOut.flush();
   }
 
   /**
@@ -54,6 +162,16 @@ public class JsEngine {
     return m_context.evaluateString(m_scope, code, null, 0, null);
   }
 
+  /**
+   * Execute a compiled script in the global scope
+   * @param script the script to execute
+   * @return this
+   */
+  public JsEngine eval(JsScript script) {
+    script.exec(m_context, m_scope);
+    return this;
+  }
+
   /**
    * Evaluate js code from an input stream
    * @param is input stream
@@ -81,6 +199,27 @@ public class JsEngine {
     return (NativeObject) parseJSON.call(m_context, m_scope, m_scope, new Object[] {json});
   }
 
+  /**
+   * Serialize a JS object into JSON
+   * @param obj a JS object
+   * @return a JSON string
+   */
+  public String toJSON(Scriptable obj) {
+    NativeJSON jsJSON = (NativeJSON) get("JSON");
+    Function stringify = (Function) jsJSON.get("stringify");
+    return Context.toString(stringify.call(m_context, m_scope, m_scope, new Object[] {obj}));
+  }
+
+  /**
+   * Create a JS array
+   * @param elements elements of the array
+   * @return a JS array
+   */
+  public Scriptable newArray(Object[] elements) {
+    // Rhino only takes an Object[], not an array of a subtype
+    return m_context.newArray(m_scope, Arrays.copyOf(elements, elements.length, Object[].class));
+  }
+
   /**
    * Add a fake browser environment to the global scope.
    * @return <code>this</code>
@@ -97,7 +236,7 @@ public class JsEngine {
    * @return value
    */
   public Object get(Scriptable obj, String property) {
-    return obj.get(property, m_scope);
+    return ScriptableObject.getProperty(obj, property);
   }
 
   /**
@@ -119,6 +258,28 @@ public class JsEngine {
     return fun.call(m_context, m_scope, m_scope, args);
   }
 
+  /**
+   * Call a function, giving up if it runs for longer than the timeout
+   * @param timeout the timeout
+   * @param unit unit of the timeout
+   * @param fun the function to call
+   * @param args the arguments to pass to the function
+   * @return the result
+   * @throws TimeoutException if the function runs past the timeout
+   */
+  public Object call(long timeout, TimeUnit unit, Function fun, Object ... args) throws TimeoutException {
+    m_context.putThreadLocal(DEADLINE, System.nanoTime() + unit.toNanos(timeout));
+    m_context.setInstructionObserverThreshold(INSTRUCTION_THRESHOLD);
+    try {
+      return call(fun, args);
+    } catch (DeadlineError e) {
+      throw new TimeoutException("gave up after " + timeout + " " + unit.toString().toLowerCase());
+    } finally {
+      m_context.setInstructionObserverThreshold(0);
+      m_context.removeThreadLocal(DEADLINE);
+    }
+  }
+
   /**
    * Call a function by name
    * @param functionName the name of the function in the global scope
@@ -129,4 +290,20 @@ public class JsEngine {
     Function fun = (Function) get(functionName);
     return call(fun, args);
   }
+
+  /**
+   * Exit the Rhino context entered by this engine. The engine can't be used afterwards.
+   * @throws IllegalStateException if called on a different thread than the one that created the engine
+   */
+  @Override
+  public void close() {
+    if (m_closed) {
+      return;
+    }
+    if (Context.getCurrentContext() != m_context) {
+      throw new IllegalStateException("an engine must be closed on the thread that created it");
+    }
+    m_closed = true;
+    Context.exit();
+  }
 }
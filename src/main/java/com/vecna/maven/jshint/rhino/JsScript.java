@@ -0,0 +1,185 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.rhino;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+/**
+ * A classpath script compiled once and shared by all engines.
+ * Compiled scripts are cached for the lifetime of the class loader that loaded this class (i.e. the plugin), so the
+ * script is only parsed once per build no matter how many modules or threads use it. The script is parsed when it
+ * is first executed, so an engine restored from a {@link ScopeSnapshot} doesn't pay for it.
+ * <p>
+ * The JSHint script bundled with the plugin may also have been compiled to JVM classes when the plugin was built.
+ * If so, and if precompiled scripts are allowed, the precompiled classes are used instead of the interpreter.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public final class JsScript {
+  /**
+   * Path of the JSHint script bundled with the plugin.
+   */
+  public static final String BUNDLED_JSHINT = "jshint.js";
+
+  private static final String PRECOMPILED_JSHINT = "com.vecna.maven.jshint.rhino.compiled.JsHint";
+
+  private static final Map<String, JsScript> CACHE = new ConcurrentHashMap<String, JsScript>();
+
+  private final String m_name;
+  private final String m_source;
+  private final String m_hash;
+  private volatile Class<? extends Script> m_precompiled;
+  private Script m_interpreted;
+
+  private JsScript(String name, String source, Class<? extends Script> precompiled) {
+    m_name = name;
+    m_source = source;
+    m_hash = Hashing.sha1().hashString(source, Charsets.UTF_8).toString();
+    m_precompiled = precompiled;
+  }
+
+  /**
+   * @return the class of the precompiled bundled JSHint or <code>null</code> if JSHint couldn't be compiled
+   *         when the plugin was built
+   */
+  private static Class<? extends Script> loadPrecompiledJsHint() {
+    try {
+      return Class.forName(PRECOMPILED_JSHINT, true, JsScript.class.getClassLoader()).asSubclass(Script.class);
+    } catch (ClassNotFoundException | LinkageError e) {
+      return null;
+    }
+  }
+
+  /**
+   * Load and compile a script from the classpath, or reuse a previously compiled copy.
+   * @param classLoader class loader to look the script up in
+   * @param path the path to the script on the classpath
+   * @param precompiled whether to use the precompiled classes if the script is the bundled JSHint
+   * @return the compiled script or <code>null</code> if the script is not found
+   * @throws IOException if the script cannot be read
+   */
+  public static synchronized JsScript load(ClassLoader classLoader, String path, boolean precompiled)
+      throws IOException {
+    URL url = classLoader.getResource(path);
+    if (url == null) {
+      return null;
+    }
+
+    // the precompiled classes only match the script bundled with the plugin, not a custom one
+    boolean bundled = url.equals(JsScript.class.getClassLoader().getResource(BUNDLED_JSHINT));
+    Class<? extends Script> precompiledClass = precompiled && bundled ? loadPrecompiledJsHint() : null;
+
+    String key = url.toExternalForm() + (precompiledClass == null ? "" : "#precompiled");
+    JsScript script = CACHE.get(key);
+    if (script == null) {
+      InputStream is = url.openStream();
+      String source;
+      try {
+        source = IOUtils.toString(is, Charsets.UTF_8);
+      } finally {
+        is.close();
+      }
+      script = new JsScript(path, source, precompiledClass);
+      CACHE.put(key, script);
+    }
+    return script;
+  }
+
+  /**
+   * @return the script compiled for the interpreter (compiled on first use)
+   */
+  private synchronized Script getInterpreted() {
+    if (m_interpreted == null) {
+      Context context = Context.enter();
+      try {
+        // interpreted scripts can be shared between threads
+        context.setOptimizationLevel(-1);
+        m_interpreted = context.compileString(m_source, m_name, 1, null);
+      } finally {
+        Context.exit();
+      }
+    }
+    return m_interpreted;
+  }
+
+  /**
+   * Execute the script, preferring the precompiled classes. If the precompiled script fails, it is disabled and the
+   * script is executed by the interpreter instead.
+   * @param context JS context
+   * @param scope scope to execute the script in
+   */
+  void exec(Context context, Scriptable scope) {
+    Class<? extends Script> precompiled = m_precompiled;
+    if (precompiled != null) {
+      try {
+        precompiled.getDeclaredConstructor().newInstance().exec(context, scope);
+        return;
+      } catch (ReflectiveOperationException | RhinoException | LinkageError e) {
+        m_precompiled = null;
+      }
+    }
+    getInterpreted().exec(context, scope);
+  }
+
+  /**
+   * @return whether the script has already been compiled for the interpreter
+   */
+  public synchronized boolean isCompiled() {
+    return m_interpreted != null;
+  }
+
+  /**
+   * @return whether the script runs from precompiled classes rather than the interpreter
+   */
+  public boolean isPrecompiled() {
+    return m_precompiled != null;
+  }
+
+  /**
+   * @return name of the script
+   */
+  public String getName() {
+    return m_name;
+  }
+
+  /**
+   * @return the script source
+   */
+  public String getSource() {
+    return m_source;
+  }
+
+  /**
+   * @return hash of the script source, identifies the script version
+   */
+  public String getHash() {
+    return m_hash;
+  }
+}
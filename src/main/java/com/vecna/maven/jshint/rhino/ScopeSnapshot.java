@@ -0,0 +1,140 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.rhino;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.mozilla.javascript.Context;
+
+/**
+ * A snapshot of the global scope of an engine right after a script has been executed in it, kept on disk so that a
+ * fresh JVM can restore the scope instead of parsing and executing the script again.
+ * <p>
+ * Snapshots are only used for scripts that run in the interpreter, and only until the script has been compiled in
+ * the current class loader: from then on, executing the compiled script is cheaper than reading the snapshot.
+ * A snapshot written by a different version of Rhino or for a different script, or one that cannot be read for any
+ * other reason, is ignored and replaced.
+ * </p>
+ * @author ogolberg@vecna.com
+ */
+public final class ScopeSnapshot {
+  private static final int VERSION = 1;
+
+  /**
+   * Snapshots written (or being written) by this class loader, so that threads bootstrapping at the same time don't
+   * all write the same snapshot.
+   */
+  private static final Set<File> WRITTEN = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+  private ScopeSnapshot() {
+  }
+
+  /**
+   * @return the Rhino version, which must match for a snapshot to be restored
+   */
+  private static String getRhinoVersion() {
+    Context context = Context.enter();
+    try {
+      return context.getImplementationVersion();
+    } finally {
+      Context.exit();
+    }
+  }
+
+  /**
+   * @return the engine restored from the snapshot or <code>null</code> if the snapshot is missing or unusable
+   */
+  private static JsEngine restore(File file, JsScript script) {
+    if (!file.isFile()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != VERSION || !getRhinoVersion().equals(in.readUTF()) || !script.getHash().equals(in.readUTF())) {
+        return null;
+      }
+      return JsEngine.readScope(in);
+    } catch (IOException | RuntimeException e) {
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Write the snapshot of a freshly bootstrapped engine
+   */
+  private static void write(File file, JsScript script, JsEngine engine) throws IOException {
+    FileUtils.forceMkdir(file.getParentFile());
+    File tmp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      out.writeInt(VERSION);
+      out.writeUTF(getRhinoVersion());
+      out.writeUTF(script.getHash());
+      engine.writeScope(out);
+    } finally {
+      out.close();
+    }
+    FileUtils.deleteQuietly(file);
+    FileUtils.moveFile(tmp, file);
+  }
+
+  /**
+   * Bootstrap an engine with a fake browser environment and a script, restoring it from a snapshot if possible.
+   * If the snapshot is used but missing or unusable, the script is executed and a new snapshot is written.
+   * @param script the script
+   * @param directory directory with the snapshots
+   * @return the engine
+   */
+  public static JsEngine bootstrap(JsScript script, File directory) {
+    File file = new File(directory, "scope-" + script.getHash() + ".ser");
+    boolean write = false;
+    if (!script.isPrecompiled() && !script.isCompiled()) {
+      JsEngine engine = restore(file, script);
+      if (engine != null) {
+        return engine;
+      }
+      write = WRITTEN.add(file);
+    }
+
+    // the snapshot must be taken before JSHint runs and changes its state
+    JsEngine engine = new JsEngine().browserEnv().eval(script);
+    if (write) {
+      try {
+        write(file, script, engine);
+      } catch (IOException | RuntimeException e) {
+        // the script is executed again next time
+        FileUtils.deleteQuietly(new File(file.getPath() + ".tmp"));
+      }
+    }
+    return engine;
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+import com.google.common.base.Strings;
+import com.vecna.maven.jshint.mojo.JsHintError;
+import com.vecna.maven.jshint.mojo.JsHintOptions;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Tests for {@link Jsr223LintEngine}. It runs through {@link javax.script.ScriptEngineManager} on the JavaScript
+ * engine of the JVM, or on {@link RhinoScriptEngineFactory} if the JVM has none, and must find the same violations as
+ * the Rhino engine.
+ * @author ogolberg@vecna.com
+ */
+public class Jsr223LintEngineTest extends TestCase {
+  private static final JsHintOptions DEFAULTS = new JsHintOptions("{}", null);
+  private static final JsHintOptions STRICT = new JsHintOptions("{\"undef\": true, \"eqeqeq\": true}",
+                                                                "{\"jQuery\": false}");
+  private static final JsHintOptions PASSFAIL = new JsHintOptions("{\"passfail\": true}", null);
+
+  private static final String[] SOURCES = {
+    "var a = 1\nvar b = 2\n",
+    "function f(x) {\n  if (x == null) {\n    return y;\n  }\n  jQuery('a');\n}\n",
+    "!",
+    "var s = '12:-\u00e9'\n",
+    ""
+  };
+  /**
+   * Evidence with a control character, which makes JSHint throw instead of stopping with <code>passfail</code>.
+   */
+  private static final String CONTROL_CHARACTER = "var s = '\u00e9 \u0000';\n";
+
+  private LintEngineFactory m_factory;
+  private LintEngine m_engine;
+  private LintEngine m_rhino;
+
+  @Override
+  protected void setUp() throws Exception {
+    JsScript jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, true);
+    m_factory = LintEngines.get(LintEngines.JSR223);
+    assertNotNull("no javax.script engine found, not even " + RhinoScriptEngineFactory.ENGINE_NAME, m_factory);
+    m_engine = m_factory.bootstrap(jsHint);
+    m_rhino = LintEngines.get(LintEngines.RHINO).bootstrap(jsHint);
+  }
+
+  @Override
+  protected void tearDown() {
+    m_engine.close();
+    m_rhino.close();
+  }
+
+  private static List<String> toStrings(List<JsHintError> errors) {
+    List<String> strings = new ArrayList<String>();
+    for (JsHintError error : errors) {
+      strings.add(error.toString());
+    }
+    return strings;
+  }
+
+  private void assertSameErrors(JsHintOptions options, String ... sources) throws TimeoutException {
+    String description = m_factory.getDescription();
+    String[] srcFiles = new String[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      srcFiles[i] = i + ".js";
+      List<String> expected = toStrings(m_rhino.lint(srcFiles[i], sources[i], options));
+      assertEquals(description, expected, toStrings(m_engine.lint(srcFiles[i], sources[i], options)));
+      assertEquals(description, expected, toStrings(m_engine.lint(srcFiles[i], sources[i], options, 60000)));
+    }
+    List<List<JsHintError>> expected = m_rhino.lint(srcFiles, sources, options);
+    List<List<JsHintError>> actual = m_engine.lint(srcFiles, sources, options);
+    for (int i = 0; i < sources.length; i++) {
+      assertEquals(description, toStrings(expected.get(i)), toStrings(actual.get(i)));
+    }
+  }
+
+  /**
+   * Every way of linting a file finds the same violations as the Rhino engine.
+   */
+  public void testSameErrorsAsRhino() throws TimeoutException {
+    assertSameErrors(DEFAULTS, SOURCES);
+    assertSameErrors(DEFAULTS, CONTROL_CHARACTER);
+    assertSameErrors(STRICT, SOURCES);
+    assertSameErrors(PASSFAIL, SOURCES);
+  }
+
+  /**
+   * A file that runs past the timeout is abandoned, and the engine can't be used afterwards.
+   */
+  public void testTimeout() {
+    String source = Strings.repeat("function f(a) {\n  return a + 1;\n}\n", 20000);
+    try {
+      m_engine.lint("a-large.js", source, DEFAULTS, 1);
+      fail("expected a timeout");
+    } catch (TimeoutException e) {
+      assertEquals("gave up after 1 milliseconds", e.getMessage());
+    }
+    try {
+      m_engine.lint("a.js", SOURCES[0], DEFAULTS);
+      fail("expected the engine to be unusable after a timeout");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
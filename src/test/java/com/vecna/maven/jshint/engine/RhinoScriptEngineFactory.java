@@ -0,0 +1,208 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import org.apache.commons.io.IOUtils;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * A bare-bones <code>javax.script</code> engine on the bundled Rhino, registered for the tests so that
+ * {@link Jsr223LintEngine} runs through {@link javax.script.ScriptEngineManager} on JVMs without a JavaScript engine.
+ * It only does what {@link Jsr223LintEngine} needs: evaluating scripts in a single global scope and calling global
+ * functions.
+ * @author ogolberg@vecna.com
+ */
+public class RhinoScriptEngineFactory implements ScriptEngineFactory {
+  static final String ENGINE_NAME = "Rhino javax.script test adapter";
+
+  /**
+   * The script engine.
+   */
+  private static class RhinoScriptEngine extends AbstractScriptEngine implements Invocable {
+    private final ScriptEngineFactory m_factory;
+    private final ScriptableObject m_scope;
+
+    RhinoScriptEngine(ScriptEngineFactory factory) {
+      m_factory = factory;
+      Context context = enter();
+      try {
+        m_scope = context.initStandardObjects();
+      } finally {
+        Context.exit();
+      }
+    }
+
+    private static Context enter() {
+      Context context = Context.enter();
+      // JSHint is too large for the class compiler
+      context.setOptimizationLevel(-1);
+      return context;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext scriptContext) throws ScriptException {
+      Object fileName = scriptContext.getAttribute(FILENAME);
+      Context context = enter();
+      try {
+        return context.evaluateString(m_scope, script, fileName == null ? "<eval>" : fileName.toString(), 1, null);
+      } catch (RhinoException e) {
+        throw new ScriptException(e.getMessage());
+      } finally {
+        Context.exit();
+      }
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext scriptContext) throws ScriptException {
+      try {
+        return eval(IOUtils.toString(reader), scriptContext);
+      } catch (IOException e) {
+        throw new ScriptException(e);
+      }
+    }
+
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+      Object function = m_scope.get(name, m_scope);
+      if (!(function instanceof Function)) {
+        throw new NoSuchMethodException(name);
+      }
+      Context context = enter();
+      try {
+        return ((Function) function).call(context, m_scope, m_scope, args);
+      } catch (RhinoException e) {
+        throw new ScriptException(e.getMessage());
+      } finally {
+        Context.exit();
+      }
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T getInterface(Class<T> clasz) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> clasz) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Bindings createBindings() {
+      return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+      return m_factory;
+    }
+  }
+
+  @Override
+  public String getEngineName() {
+    return ENGINE_NAME;
+  }
+
+  @Override
+  public String getEngineVersion() {
+    return "1.7R4";
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return Collections.singletonList("js");
+  }
+
+  @Override
+  public List<String> getMimeTypes() {
+    return Collections.singletonList("application/javascript");
+  }
+
+  @Override
+  public List<String> getNames() {
+    return Arrays.asList("javascript", "JavaScript");
+  }
+
+  @Override
+  public String getLanguageName() {
+    return "ECMAScript";
+  }
+
+  @Override
+  public String getLanguageVersion() {
+    return "1.8";
+  }
+
+  @Override
+  public Object getParameter(String key) {
+    if (ScriptEngine.ENGINE.equals(key)) {
+      return getEngineName();
+    } else if (ScriptEngine.ENGINE_VERSION.equals(key)) {
+      return getEngineVersion();
+    } else if (ScriptEngine.NAME.equals(key)) {
+      return getNames().get(0);
+    } else if (ScriptEngine.LANGUAGE.equals(key)) {
+      return getLanguageName();
+    } else if (ScriptEngine.LANGUAGE_VERSION.equals(key)) {
+      return getLanguageVersion();
+    }
+    return null;
+  }
+
+  @Override
+  public String getMethodCallSyntax(String obj, String m, String... args) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getOutputStatement(String toDisplay) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getProgram(String... statements) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public ScriptEngine getScriptEngine() {
+    return new RhinoScriptEngine(this);
+  }
+}
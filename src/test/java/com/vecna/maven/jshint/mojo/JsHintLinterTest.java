@@ -0,0 +1,78 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+import com.vecna.maven.jshint.engine.LintEngine;
+import com.vecna.maven.jshint.engine.LintEngines;
+import com.vecna.maven.jshint.rhino.JsScript;
+
+/**
+ * Tests for {@link JsHintLinter} on the Rhino engine.
+ * @author ogolberg@vecna.com
+ */
+public class JsHintLinterTest extends TestCase {
+  private static final JsHintOptions PASSFAIL = new JsHintOptions("{\"passfail\": true}", null);
+  private static final JsHintOptions DEFAULTS = new JsHintOptions("{}", null);
+
+  private LintEngine m_engine;
+
+  @Override
+  protected void setUp() throws Exception {
+    JsScript jsHint = JsScript.load(getClass().getClassLoader(), JsScript.BUNDLED_JSHINT, true);
+    m_engine = LintEngines.get(LintEngines.RHINO).bootstrap(jsHint);
+  }
+
+  @Override
+  protected void tearDown() {
+    m_engine.close();
+  }
+
+  /**
+   * With <code>passfail</code>, JSHint stops at the first error, reports that it stopped and ends the errors with
+   * <code>null</code>.
+   */
+  public void testPassfail() throws TimeoutException {
+    String source = "var a = 1\nvar b = 2\n";
+
+    List<JsHintError> errors = m_engine.lint("a.js", source, PASSFAIL);
+    assertEquals(2, errors.size());
+    assertEquals("Missing semicolon.", errors.get(0).getReason());
+    assertTrue(errors.get(1).getReason().startsWith("Stopping."));
+
+    assertEquals(errors.size(), m_engine.lint("a.js", source, PASSFAIL, 10000).size());
+    List<List<JsHintError>> batch = m_engine.lint(new String[] { "a.js", "b.js" }, new String[] { source, source },
+                                                  PASSFAIL);
+    assertEquals(2, batch.get(0).size());
+    assertEquals(2, batch.get(1).size());
+  }
+
+  /**
+   * JSHint also gives up and ends the errors with <code>null</code> on some unrecoverable syntax errors.
+   */
+  public void testUnrecoverable() {
+    List<JsHintError> errors = m_engine.lint("a.js", "!", DEFAULTS);
+    assertFalse(errors.isEmpty());
+    for (JsHintError error : errors) {
+      assertNotNull(error.getReason());
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Tests for {@link OrderedResults}.
+ * @author ogolberg@vecna.com
+ */
+public class OrderedResultsTest extends TestCase {
+  private static final String[] SOURCE_FILES = { "a.js", "b.js", "c.js", "d.js", "e.js" };
+
+  /**
+   * Records what the listener is told, one line per call.
+   */
+  private static class RecordingListener implements LintListener {
+    private final List<String> m_calls = new ArrayList<String>();
+
+    @Override
+    public void fileLinted(String srcFile, List<JsHintError> errors) {
+      m_calls.add("linted " + srcFile + " " + errors);
+    }
+
+    @Override
+    public void fileSkipped(String srcFile, String reason) {
+      m_calls.add("skipped " + srcFile + " " + reason);
+    }
+
+    @Override
+    public void fileTimedOut(String srcFile, String message) {
+      m_calls.add("timed out " + srcFile + " " + message);
+    }
+
+    @Override
+    public void fileFlagged(String srcFile, String warning) {
+      m_calls.add("flagged " + srcFile + " " + warning);
+    }
+  }
+
+  private static List<JsHintError> errors(String srcFile, int count) {
+    List<JsHintError> errors = new ArrayList<JsHintError>();
+    for (int i = 1; i <= count; i++) {
+      errors.add(new JsHintError(srcFile, i, 1, "var x = " + i, "Missing semicolon."));
+    }
+    return errors;
+  }
+
+  /**
+   * Complete the files last to first, so that every file but the first waits for it.
+   */
+  private static List<String> completeBackwards(int maxPendingErrors) throws MojoExecutionException {
+    RecordingListener listener = new RecordingListener();
+    OrderedResults results = new OrderedResults(SOURCE_FILES, listener, maxPendingErrors);
+    results.complete(4, errors("e.js", 3), "minified");
+    results.timeOut(3, "lint timed out");
+    results.complete(2, errors("c.js", 2));
+    results.skip(1, "minified");
+    assertEquals(Collections.emptyList(), listener.m_calls);
+    results.complete(0, errors("a.js", 1));
+    results.close();
+    return listener.m_calls;
+  }
+
+  /**
+   * Results are passed on in source order no matter how many of them were spilled to disk.
+   */
+  public void testSpilledResultsAreUnchanged() throws MojoExecutionException {
+    List<String> expected = Arrays.asList("linted a.js " + errors("a.js", 1),
+                                          "skipped b.js minified",
+                                          "linted c.js " + errors("c.js", 2),
+                                          "timed out d.js lint timed out",
+                                          "flagged e.js minified",
+                                          "linted e.js " + errors("e.js", 3));
+    assertEquals(expected, completeBackwards(OrderedResults.DEFAULT_MAX_PENDING_ERRORS));
+    // only the errors of c.js fit in memory
+    assertEquals(expected, completeBackwards(2));
+    // everything is spilled
+    assertEquals(expected, completeBackwards(0));
+  }
+
+  /**
+   * The run file is emptied once the spilled results are passed on, and still works afterwards.
+   */
+  public void testSpillingAgain() throws MojoExecutionException {
+    RecordingListener listener = new RecordingListener();
+    OrderedResults results = new OrderedResults(SOURCE_FILES, listener, 0);
+    results.complete(1, errors("b.js", 2));
+    results.complete(0, errors("a.js", 1));
+    results.complete(3, errors("d.js", 2));
+    results.complete(4, errors("e.js", 1));
+    results.complete(2, errors("c.js", 3));
+    results.close();
+    assertEquals(Arrays.asList("linted a.js " + errors("a.js", 1),
+                               "linted b.js " + errors("b.js", 2),
+                               "linted c.js " + errors("c.js", 3),
+                               "linted d.js " + errors("d.js", 2),
+                               "linted e.js " + errors("e.js", 1)), listener.m_calls);
+  }
+}
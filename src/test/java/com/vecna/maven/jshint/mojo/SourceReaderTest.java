@@ -0,0 +1,74 @@
+/**
+ * Copyright 2013 Vecna Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+*/
+
+package com.vecna.maven.jshint.mojo;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+/**
+ * Tests for {@link SourceReader}.
+ * @author ogolberg@vecna.com
+ */
+public class SourceReaderTest extends TestCase {
+  private File m_file;
+
+  @Override
+  protected void setUp() throws IOException {
+    m_file = File.createTempFile("source", ".js");
+  }
+
+  @Override
+  protected void tearDown() {
+    FileUtils.deleteQuietly(m_file);
+  }
+
+  private String readBack(SourceReader reader, String source) throws IOException {
+    FileUtils.writeStringToFile(m_file, source, Charsets.UTF_8.name());
+    return reader.read(m_file);
+  }
+
+  /**
+   * The same reader reads small and memory-mapped files, before and after each other.
+   */
+  public void testSmallAndLargeFiles() throws IOException {
+    SourceReader reader = new SourceReader(Charsets.UTF_8);
+    String small = "var caf\u00e9 = '\u20ac';\n";
+    // well past the memory-mapping size, with multi-byte characters
+    String large = Strings.repeat("var s = '\u00e9\u20ac\ud83d\ude00';\n", 100000);
+
+    assertEquals(small, readBack(reader, small));
+    assertEquals(large, readBack(reader, large));
+    assertEquals(small, readBack(reader, small));
+    assertEquals(large, readBack(reader, large));
+  }
+
+  /**
+   * Malformed input is replaced, like <code>new String(bytes, charset)</code> does.
+   */
+  public void testMalformedInput() throws IOException {
+    byte[] bytes = { 'a', (byte) 0xff, 'b' };
+    FileUtils.writeByteArrayToFile(m_file, bytes);
+    assertEquals(new String(bytes, Charsets.UTF_8), new SourceReader(Charsets.UTF_8).read(m_file));
+  }
+}